@@ -2,13 +2,23 @@ package com.mrsuffix.singleplayersleep;
 
 import com.mrsuffix.singleplayersleep.commands.SleepCommand;
 import com.mrsuffix.singleplayersleep.listeners.AFKListener;
+import com.mrsuffix.singleplayersleep.listeners.PlayerStateListener;
 import com.mrsuffix.singleplayersleep.listeners.SleepListener;
+import com.mrsuffix.singleplayersleep.listeners.WorldListener;
 import com.mrsuffix.singleplayersleep.managers.AFKManager;
 import com.mrsuffix.singleplayersleep.managers.BossBarManager;
 import com.mrsuffix.singleplayersleep.managers.ConfigManager;
+import com.mrsuffix.singleplayersleep.managers.ConfigWatcher;
 import com.mrsuffix.singleplayersleep.managers.CooldownManager;
+import com.mrsuffix.singleplayersleep.managers.MessageManager;
 import com.mrsuffix.singleplayersleep.managers.StatisticsManager;
 import com.mrsuffix.singleplayersleep.managers.UpdateChecker;
+import com.mrsuffix.singleplayersleep.managers.WorldStateManager;
+import com.mrsuffix.singleplayersleep.scheduler.BukkitTaskScheduler;
+import com.mrsuffix.singleplayersleep.scheduler.FoliaTaskScheduler;
+import com.mrsuffix.singleplayersleep.scheduler.TaskScheduler;
+import com.mrsuffix.singleplayersleep.tasks.SleepOrchestrator;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.logging.Level;
@@ -24,18 +34,25 @@ import java.util.logging.Level;
 public final class SinglePlayerSleep extends JavaPlugin {
 
     private static SinglePlayerSleep instance;
+    private TaskScheduler taskScheduler;
     private ConfigManager configManager;
+    private ConfigWatcher configWatcher;
     private StatisticsManager statisticsManager;
     private CooldownManager cooldownManager;
     private AFKManager afkManager;
     private BossBarManager bossBarManager;
+    private MessageManager messageManager;
+    private WorldStateManager worldStateManager;
+    private SleepOrchestrator sleepOrchestrator;
     private UpdateChecker updateChecker;
-    private boolean debugMode;
 
     @Override
     public void onEnable() {
         instance = this;
 
+        // Pick the scheduler for the running server
+        this.taskScheduler = FoliaTaskScheduler.isFolia() ? new FoliaTaskScheduler(this) : new BukkitTaskScheduler(this);
+
         // Initialize managers
         this.configManager = new ConfigManager(this);
         this.statisticsManager = new StatisticsManager(this);
@@ -43,17 +60,36 @@ public final class SinglePlayerSleep extends JavaPlugin {
         this.cooldownManager = new CooldownManager(this);
         this.afkManager = new AFKManager(this);
         this.bossBarManager = new BossBarManager(this);
+        this.messageManager = new MessageManager(this);
+        this.worldStateManager = new WorldStateManager(this);
         this.updateChecker = new UpdateChecker(this);
+        this.configWatcher = new ConfigWatcher(this);
 
         // Load configuration
         configManager.loadConfig();
+        messageManager.load();
         statisticsManager.loadStatistics();
 
-        this.debugMode = configManager.isDebugMode();
+        // Create world states, count players that are already online (e.g. after /reload)
+        // and track them for AFK detection
+        worldStateManager.loadWorlds();
+        worldStateManager.recountAll();
+        for (Player player : getServer().getOnlinePlayers()) {
+            afkManager.trackPlayer(player);
+        }
 
         // Register listeners
         getServer().getPluginManager().registerEvents(new SleepListener(this), this);
         getServer().getPluginManager().registerEvents(new AFKListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerStateListener(this), this);
+        getServer().getPluginManager().registerEvents(new WorldListener(this), this);
+
+        // Start the tick driver for countdowns, animations and AFK deadlines
+        this.sleepOrchestrator = new SleepOrchestrator(this);
+        taskScheduler.runGlobalTimer(task -> sleepOrchestrator.run(), 1L, 1L);
+
+        // Write statistics behind in the background
+        statisticsManager.startCheckpoints();
 
         // Register commands
         getCommand("sleep").setExecutor(new SleepCommand(this));
@@ -61,20 +97,36 @@ public final class SinglePlayerSleep extends JavaPlugin {
         // Check for updates
         updateChecker.checkForUpdates();
 
+        // Reload config.yml when it is edited, if enabled
+        configWatcher.update();
+
         // Log startup
         getLogger().info("SinglePlayerSleep v" + getDescription().getVersion() + " has been enabled!");
-        if (debugMode) {
+        if (isDebugMode()) {
             getLogger().info("Debug mode is enabled.");
         }
     }
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+
         // Save statistics before shutdown
         if (statisticsManager != null) {
             statisticsManager.saveStatistics();
         }
 
+        // Give viewers the real world time back if a sleep animation is running
+        if (worldStateManager != null) {
+            worldStateManager.cancelAnimations();
+        }
+
+        if (taskScheduler != null) {
+            taskScheduler.cancelAll();
+        }
+
         getLogger().info("SinglePlayerSleep has been disabled!");
     }
 
@@ -87,6 +139,15 @@ public final class SinglePlayerSleep extends JavaPlugin {
         return instance;
     }
 
+    /**
+     * Get the task scheduler
+     * 
+     * @return TaskScheduler for the running server
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
     /**
      * Get the configuration manager
      * 
@@ -96,6 +157,15 @@ public final class SinglePlayerSleep extends JavaPlugin {
         return configManager;
     }
 
+    /**
+     * Get the config watcher
+     * 
+     * @return ConfigWatcher instance
+     */
+    public ConfigWatcher getConfigWatcher() {
+        return configWatcher;
+    }
+
     /**
      * Get the statistics manager
      * 
@@ -127,6 +197,33 @@ public final class SinglePlayerSleep extends JavaPlugin {
         return bossBarManager;
     }
 
+    /**
+     * Get the message manager
+     * 
+     * @return MessageManager instance
+     */
+    public MessageManager getMessageManager() {
+        return messageManager;
+    }
+
+    /**
+     * Get the world state manager
+     * 
+     * @return WorldStateManager instance
+     */
+    public WorldStateManager getWorldStateManager() {
+        return worldStateManager;
+    }
+
+    /**
+     * Get the sleep orchestrator
+     * 
+     * @return SleepOrchestrator instance
+     */
+    public SleepOrchestrator getSleepOrchestrator() {
+        return sleepOrchestrator;
+    }
+
     /**
      * Get the update checker
      * 
@@ -142,7 +239,7 @@ public final class SinglePlayerSleep extends JavaPlugin {
      * @return true if debug mode is on
      */
     public boolean isDebugMode() {
-        return debugMode;
+        return configManager != null && configManager.isDebugMode();
     }
 
     /**
@@ -151,7 +248,7 @@ public final class SinglePlayerSleep extends JavaPlugin {
      * @param message Message to log
      */
     public void debugLog(String message) {
-        if (debugMode) {
+        if (isDebugMode()) {
             getLogger().log(Level.INFO, "[DEBUG] " + message);
         }
     }
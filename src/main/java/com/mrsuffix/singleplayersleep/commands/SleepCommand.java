@@ -1,8 +1,11 @@
 package com.mrsuffix.singleplayersleep.commands;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.managers.SleepRollup;
+import com.mrsuffix.singleplayersleep.managers.StatisticsManager;
 import com.mrsuffix.singleplayersleep.utils.MessageUtil;
 import com.mrsuffix.singleplayersleep.utils.TimeUtil;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.command.Command;
@@ -14,12 +17,16 @@ import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
 
 /**
  * Handles sleep-related commands
  */
 public class SleepCommand implements CommandExecutor, TabCompleter {
 
+    private static final int LEADERBOARD_PAGE_SIZE = 10;
+
     private final SinglePlayerSleep plugin;
 
     public SleepCommand(SinglePlayerSleep plugin) {
@@ -38,7 +45,9 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
             case "skip":
                 return handleSkip(sender, args);
             case "stats":
-                return handleStats(sender);
+                return handleStats(sender, args);
+            case "top":
+                return handleTop(sender, args);
             case "reload":
                 return handleReload(sender);
             case "debug":
@@ -57,7 +66,7 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
      */
     private boolean handleSkip(CommandSender sender, String[] args) {
         if (!sender.hasPermission("singleplayersleep.skip")) {
-            MessageUtil.sendMessage(sender, plugin.getConfigManager().getMessage("no-permission"));
+            plugin.getMessageManager().send(sender, "no-permission");
             return true;
         }
 
@@ -75,40 +84,136 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        if (!TimeUtil.isNight(world)) {
-            MessageUtil.sendMessage(sender, "&cIt's not night time in world " + world.getName() + "!");
+        UUID playerId = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        // World states and time are owned by the global region
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            WorldSettings settings = plugin.getWorldStateManager().getState(world).getSettings();
+            if (!settings.isEnabled()) {
+                plugin.getMessageManager().send(sender, "world-disabled");
+                return;
+            }
+
+            if (!TimeUtil.isNight(world)) {
+                MessageUtil.sendMessage(sender, "&cIt's not night time in world " + world.getName() + "!");
+                return;
+            }
+
+            // Skip night
+            world.setTime(TimeUtil.MORNING_TIME);
+            if (settings.shouldClearWeather()) {
+                world.setStorm(false);
+                world.setThundering(false);
+            }
+
+            MessageUtil.broadcastMessage("&6" + sender.getName() + " manually skipped the night!");
+            plugin.getStatisticsManager().recordManualSkip(world, playerId);
+        });
+
+        return true;
+    }
+
+    /**
+     * Handle statistics command
+     */
+    private boolean handleStats(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("singleplayersleep.stats")) {
+            plugin.getMessageManager().send(sender, "no-permission");
             return true;
         }
 
-        // Skip night
-        world.setTime(TimeUtil.MORNING_TIME);
-        if (plugin.getConfigManager().shouldClearWeather()) {
-            world.setStorm(false);
-            world.setThundering(false);
+        if (args.length > 1) {
+            return handleWorldStats(sender, args);
         }
 
-        MessageUtil.broadcastMessage("&6" + sender.getName() + " manually skipped the night!");
-        plugin.getStatisticsManager().incrementManualSkips();
+        // Statistics are owned by the global region
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            StatisticsManager statistics = plugin.getStatisticsManager();
+            MessageUtil.sendMessage(sender, "&6=== Sleep Statistics ===");
+            MessageUtil.sendMessage(sender, "&eSleep Events: &f" + statistics.getTotalSleepCount());
+            MessageUtil.sendMessage(sender, "&eManual Skips: &f" + statistics.getManualSkips());
+            MessageUtil.sendMessage(sender, "&eTop Sleepers:");
+
+            for (StatisticsManager.LeaderboardEntry entry : statistics.getTopSleepers(5)) {
+                MessageUtil.sendMessage(sender, "&7- &f" + entry.getName() + "&7: &e" + entry.getSleeps() + " times");
+            }
+
+            if (sender instanceof Player) {
+                int rank = statistics.getPlayerRank(((Player) sender).getUniqueId());
+                if (rank > 0) {
+                    MessageUtil.sendMessage(sender, "&eYour Rank: &f#" + rank + " &7of " + statistics.getRankedPlayers());
+                }
+            }
+        });
 
         return true;
     }
 
     /**
-     * Handle statistics command
+     * Handle world statistics command
      */
-    private boolean handleStats(CommandSender sender) {
+    private boolean handleWorldStats(CommandSender sender, String[] args) {
+        World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            MessageUtil.sendMessage(sender, "&cWorld '" + args[1] + "' not found!");
+            return true;
+        }
+
+        SleepRollup.Range range = args.length > 2 ? SleepRollup.Range.fromString(args[2]) : SleepRollup.Range.DAY;
+        if (range == null) {
+            MessageUtil.sendMessage(sender, "&cInvalid range. Use 'hour', 'day', 'week', 'month' or 'all'.");
+            return true;
+        }
+
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            SleepRollup.Totals totals = plugin.getStatisticsManager().getWorldStatistics(world, range);
+            MessageUtil.sendMessage(sender, "&6=== Sleep Statistics: " + world.getName() + " &7("
+                    + range.getDescription() + ") &6===");
+            MessageUtil.sendMessage(sender, "&eNight Skips: &f" + totals.getSkips());
+            MessageUtil.sendMessage(sender, "&eManual Skips: &f" + totals.getManualSkips());
+            MessageUtil.sendMessage(sender, "&eAverage Time to Skip: &f"
+                    + TimeUtil.formatTime(totals.getAverageSkipTicks()));
+            MessageUtil.sendMessage(sender, "&eAverage Sleepers: &f"
+                    + String.format(Locale.ROOT, "%.1f", totals.getAverageParticipants()));
+        });
+
+        return true;
+    }
+
+    /**
+     * Handle leaderboard command
+     */
+    private boolean handleTop(CommandSender sender, String[] args) {
         if (!sender.hasPermission("singleplayersleep.stats")) {
-            MessageUtil.sendMessage(sender, plugin.getConfigManager().getMessage("no-permission"));
+            plugin.getMessageManager().send(sender, "no-permission");
             return true;
         }
 
-        MessageUtil.sendMessage(sender, "&6=== Sleep Statistics ===");
-        MessageUtil.sendMessage(sender, "&eSleep Events: &f" + plugin.getStatisticsManager().getTotalSleepCount());
-        MessageUtil.sendMessage(sender, "&eManual Skips: &f" + plugin.getStatisticsManager().getManualSkips());
-        MessageUtil.sendMessage(sender, "&eTop Sleepers:");
+        int page = 1;
+        if (args.length > 1) {
+            try {
+                page = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+            if (page < 1) {
+                MessageUtil.sendMessage(sender, "&cInvalid page '" + args[1] + "'!");
+                return true;
+            }
+        }
 
-        plugin.getStatisticsManager().getTopSleepers(5).forEach((player, count) ->
-                MessageUtil.sendMessage(sender, "&7- &f" + player + "&7: &e" + count + " times"));
+        int requestedPage = page;
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            StatisticsManager statistics = plugin.getStatisticsManager();
+            int pages = Math.max(1, (statistics.getRankedPlayers() + LEADERBOARD_PAGE_SIZE - 1) / LEADERBOARD_PAGE_SIZE);
+            int shownPage = Math.min(requestedPage, pages);
+            int fromRank = (shownPage - 1) * LEADERBOARD_PAGE_SIZE;
+
+            MessageUtil.sendMessage(sender, "&6=== Top Sleepers &7(" + shownPage + "/" + pages + ") &6===");
+            for (StatisticsManager.LeaderboardEntry entry : statistics.getSleepers(fromRank, LEADERBOARD_PAGE_SIZE)) {
+                MessageUtil.sendMessage(sender, "&7#" + entry.getRank() + " &f" + entry.getName() + "&7: &e"
+                        + entry.getSleeps() + " times");
+            }
+        });
 
         return true;
     }
@@ -118,21 +223,39 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
      */
     private boolean handleReload(CommandSender sender) {
         if (!sender.hasPermission("singleplayersleep.reload")) {
-            MessageUtil.sendMessage(sender, plugin.getConfigManager().getMessage("no-permission"));
+            plugin.getMessageManager().send(sender, "no-permission");
             return true;
         }
 
-        plugin.getConfigManager().loadConfig();
-        MessageUtil.sendMessage(sender, "&aConfiguration reloaded successfully!");
+        // Parsed off the main thread, applied on the global region only if valid
+        plugin.getConfigManager().reloadConfig(errors -> {
+            if (!errors.isEmpty()) {
+                MessageUtil.sendMessage(sender, "&cConfiguration not reloaded, " + errors.size() + " error(s):");
+                for (String error : errors) {
+                    MessageUtil.sendMessage(sender, "&7- &f" + error);
+                }
+                return;
+            }
+
+            MessageUtil.sendMessage(sender, "&aConfiguration reloaded successfully!");
+        });
         return true;
     }
 
     /**
-     * Handle debug toggle command
+     * Handle debug toggle command, or show debug counters with /sleep debug stats
      */
     private boolean handleDebug(CommandSender sender, String[] args) {
         if (!sender.hasPermission("singleplayersleep.debug")) {
-            MessageUtil.sendMessage(sender, plugin.getConfigManager().getMessage("no-permission"));
+            plugin.getMessageManager().send(sender, "no-permission");
+            return true;
+        }
+
+        if (args.length > 1 && args[1].equalsIgnoreCase("stats")) {
+            // Counters are updated on the global region
+            plugin.getTaskScheduler().executeGlobal(() -> MessageUtil.sendMessage(sender,
+                    "&7BossBar progress updates: &f" + plugin.getBossBarManager().getSentUpdates()
+                            + " sent&7, &f" + plugin.getBossBarManager().getSuppressedUpdates() + " suppressed"));
             return true;
         }
 
@@ -148,7 +271,7 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
      */
     private boolean handleCooldown(CommandSender sender, String[] args) {
         if (!sender.hasPermission("singleplayersleep.cooldown")) {
-            MessageUtil.sendMessage(sender, plugin.getConfigManager().getMessage("no-permission"));
+            plugin.getMessageManager().send(sender, "no-permission");
             return true;
         }
 
@@ -165,22 +288,25 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        switch (action) {
-            case "clear":
-                plugin.getCooldownManager().clearCooldown(worldName);
-                MessageUtil.sendMessage(sender, "&aCooldown cleared for world " + worldName + "!");
-                break;
-            case "check":
-                if (plugin.getCooldownManager().isOnCooldown(worldName)) {
-                    long remaining = plugin.getCooldownManager().getRemainingCooldown(worldName);
-                    MessageUtil.sendMessage(sender, "&eWorld " + worldName + " is on cooldown for " + (remaining / 1000) + " more seconds.");
-                } else {
-                    MessageUtil.sendMessage(sender, "&aWorld " + worldName + " is not on cooldown.");
-                }
-                break;
-            default:
-                MessageUtil.sendMessage(sender, "&cInvalid action. Use 'clear' or 'check'.");
-        }
+        // Cooldowns are kept on the world states, owned by the global region
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            switch (action) {
+                case "clear":
+                    plugin.getCooldownManager().clearCooldown(worldName);
+                    MessageUtil.sendMessage(sender, "&aCooldown cleared for world " + worldName + "!");
+                    break;
+                case "check":
+                    if (plugin.getCooldownManager().isOnCooldown(worldName)) {
+                        long remaining = plugin.getCooldownManager().getRemainingCooldown(worldName);
+                        MessageUtil.sendMessage(sender, "&eWorld " + worldName + " is on cooldown for " + (remaining / 1000) + " more seconds.");
+                    } else {
+                        MessageUtil.sendMessage(sender, "&aWorld " + worldName + " is not on cooldown.");
+                    }
+                    break;
+                default:
+                    MessageUtil.sendMessage(sender, "&cInvalid action. Use 'clear' or 'check'.");
+            }
+        });
 
         return true;
     }
@@ -191,9 +317,10 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
     private void showHelp(CommandSender sender) {
         MessageUtil.sendMessage(sender, "&6=== SinglePlayerSleep Commands ===");
         MessageUtil.sendMessage(sender, "&e/sleep skip [world] &7- Manually skip night");
-        MessageUtil.sendMessage(sender, "&e/sleep stats &7- View sleep statistics");
+        MessageUtil.sendMessage(sender, "&e/sleep stats [world] [range] &7- View sleep statistics");
+        MessageUtil.sendMessage(sender, "&e/sleep top [page] &7- View the sleep leaderboard");
         MessageUtil.sendMessage(sender, "&e/sleep reload &7- Reload configuration");
-        MessageUtil.sendMessage(sender, "&e/sleep debug &7- Toggle debug mode");
+        MessageUtil.sendMessage(sender, "&e/sleep debug [stats] &7- Toggle debug mode or show debug counters");
         MessageUtil.sendMessage(sender, "&e/sleep cooldown <clear|check> [world] &7- Manage cooldowns");
         MessageUtil.sendMessage(sender, "&e/sleep help &7- Show this help");
     }
@@ -203,22 +330,28 @@ public class SleepCommand implements CommandExecutor, TabCompleter {
         List<String> completions = new ArrayList<>();
 
         if (args.length == 1) {
-            List<String> subcommands = Arrays.asList("skip", "stats", "reload", "debug", "cooldown", "help");
+            List<String> subcommands = Arrays.asList("skip", "stats", "top", "reload", "debug", "cooldown", "help");
             for (String sub : subcommands) {
                 if (sub.toLowerCase().startsWith(args[0].toLowerCase())) {
                     completions.add(sub);
                 }
             }
         } else if (args.length == 2) {
-            if (args[0].equalsIgnoreCase("skip")) {
+            if (args[0].equalsIgnoreCase("skip") || args[0].equalsIgnoreCase("stats")) {
                 // Add world names
                 Bukkit.getWorlds().forEach(world -> completions.add(world.getName()));
             } else if (args[0].equalsIgnoreCase("cooldown")) {
                 completions.addAll(Arrays.asList("clear", "check"));
+            } else if (args[0].equalsIgnoreCase("debug")) {
+                completions.add("stats");
             }
         } else if (args.length == 3 && args[0].equalsIgnoreCase("cooldown")) {
             // Add world names for cooldown command
             Bukkit.getWorlds().forEach(world -> completions.add(world.getName()));
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("stats")) {
+            for (SleepRollup.Range range : SleepRollup.Range.values()) {
+                completions.add(range.name().toLowerCase(Locale.ROOT));
+            }
         }
 
         return completions;
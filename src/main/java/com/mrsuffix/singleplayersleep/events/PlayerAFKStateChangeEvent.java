@@ -0,0 +1,50 @@
+package com.mrsuffix.singleplayersleep.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player becomes AFK or returns from being AFK.
+ * Cancelling the event keeps the previous state.
+ */
+public class PlayerAFKStateChangeEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final boolean afk;
+    private boolean cancelled;
+
+    public PlayerAFKStateChangeEvent(Player player, boolean afk) {
+        super(player);
+        this.afk = afk;
+    }
+
+    /**
+     * Get the new AFK state
+     * @return true if the player is becoming AFK, false if returning
+     */
+    public boolean isAFK() {
+        return afk;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
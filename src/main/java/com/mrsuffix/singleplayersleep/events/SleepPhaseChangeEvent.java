@@ -0,0 +1,48 @@
+package com.mrsuffix.singleplayersleep.events;
+
+import com.mrsuffix.singleplayersleep.world.SleepPhase;
+import org.bukkit.World;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.world.WorldEvent;
+
+/**
+ * Called after a world's night skip state machine changes phase
+ */
+public class SleepPhaseChangeEvent extends WorldEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final SleepPhase previousPhase;
+    private final SleepPhase newPhase;
+
+    public SleepPhaseChangeEvent(World world, SleepPhase previousPhase, SleepPhase newPhase) {
+        super(world);
+        this.previousPhase = previousPhase;
+        this.newPhase = newPhase;
+    }
+
+    /**
+     * Get the phase the world was in
+     * @return Previous phase
+     */
+    public SleepPhase getPreviousPhase() {
+        return previousPhase;
+    }
+
+    /**
+     * Get the phase the world is in now
+     * @return New phase
+     */
+    public SleepPhase getNewPhase() {
+        return newPhase;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
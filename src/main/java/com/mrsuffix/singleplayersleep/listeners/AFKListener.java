@@ -2,8 +2,10 @@ package com.mrsuffix.singleplayersleep.listeners;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -18,10 +20,10 @@ public class AFKListener implements Listener {
         this.plugin = plugin;
     }
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerMove(PlayerMoveEvent event) {
-        // Update activity when player moves
-        plugin.getAFKManager().updateActivity(event.getPlayer());
+        // Only block or look bucket changes count as activity
+        plugin.getAFKManager().handleMove(event.getPlayer(), event.getFrom(), event.getTo());
     }
 
     @EventHandler
@@ -30,6 +32,12 @@ public class AFKListener implements Listener {
         plugin.getAFKManager().updateActivity(event.getPlayer());
     }
 
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Give the player a slot in the activity table
+        plugin.getAFKManager().trackPlayer(event.getPlayer());
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         // Remove player from AFK tracking when they leave
@@ -0,0 +1,85 @@
+package com.mrsuffix.singleplayersleep.listeners;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.events.PlayerAFKStateChangeEvent;
+import com.mrsuffix.singleplayersleep.managers.WorldStateManager;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerBedEnterEvent;
+import org.bukkit.event.player.PlayerBedLeaveEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps the per-world eligible and sleeping player counters up to date.
+ * Updates are handed to the global region, which owns the world state.
+ */
+public class PlayerStateListener implements Listener {
+
+    private final SinglePlayerSleep plugin;
+
+    public PlayerStateListener(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerBedEnter(PlayerBedEnterEvent event) {
+        if (event.getBedEnterResult() == PlayerBedEnterEvent.BedEnterResult.OK) {
+            Player player = event.getPlayer();
+            plugin.getTaskScheduler().executeGlobal(() -> worlds().setSleeping(player, true));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerBedLeave(PlayerBedLeaveEvent event) {
+        Player player = event.getPlayer();
+        plugin.getTaskScheduler().executeGlobal(() -> worlds().setSleeping(player, false));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGameModeChange(PlayerGameModeChangeEvent event) {
+        Player player = event.getPlayer();
+        GameMode gameMode = event.getNewGameMode();
+        plugin.getTaskScheduler().executeGlobal(() -> worlds().setGameMode(player, gameMode));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onAFKStateChange(PlayerAFKStateChangeEvent event) {
+        Player player = event.getPlayer();
+        boolean afk = event.isAFK();
+        plugin.getTaskScheduler().executeGlobal(() -> worlds().setAFK(player, afk));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        plugin.getTaskScheduler().executeGlobal(() -> worlds().changedWorld(player));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            worlds().refresh(player);
+            plugin.getStatisticsManager().updatePlayer(player);
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            worlds().removePlayer(player);
+            plugin.getBossBarManager().removePlayer(player);
+        });
+    }
+
+    private WorldStateManager worlds() {
+        return plugin.getWorldStateManager();
+    }
+}
@@ -0,0 +1,30 @@
+package com.mrsuffix.singleplayersleep.listeners;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Creates and frees per-world sleep state as worlds come and go
+ */
+public class WorldListener implements Listener {
+
+    private final SinglePlayerSleep plugin;
+
+    public WorldListener(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getWorldStateManager().loadWorld(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getWorldStateManager().unloadWorld(event.getWorld());
+    }
+}
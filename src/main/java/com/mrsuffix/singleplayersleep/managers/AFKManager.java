@@ -1,80 +1,100 @@
 package com.mrsuffix.singleplayersleep.managers;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.events.PlayerAFKStateChangeEvent;
+import com.mrsuffix.singleplayersleep.utils.TimingWheel;
+import com.mrsuffix.singleplayersleep.utils.UUIDSlotIndex;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.function.IntConsumer;
 
 /**
  * Manages AFK (Away From Keyboard) player detection
+ *
+ * Activity is kept in a primitive slot table: every tracked player owns a slot
+ * holding the last activity tick, the packed block position and the look
+ * bucket. Activity is only recorded when the block or look bucket changes,
+ * and each activity moves the slot's AFK deadline in a timing wheel so only
+ * players whose timeout elapses are ever touched.
+ *
+ * The table is owned by the global region; updates coming from other threads
+ * (Folia region threads) are handed over to it.
  */
 public class AFKManager {
 
+    // Size of a yaw/pitch bucket in degrees, smaller head movements are not activity
+    private static final float LOOK_BUCKET_DEGREES = 15.0f;
+    private static final int INITIAL_SLOTS = 64;
+
     private final SinglePlayerSleep plugin;
-    private final Map<UUID, Long> lastActivity = new HashMap<>();
-    private final Map<UUID, Location> lastLocation = new HashMap<>();
+    private final UUIDSlotIndex slotIndex = new UUIDSlotIndex(INITIAL_SLOTS);
+    private final TimingWheel deadlines;
+    private final IntConsumer expireSlot = this::expire;
+
+    // Slot table
+    private Player[] players = new Player[INITIAL_SLOTS];
+    private long[] lastActivity = new long[INITIAL_SLOTS];
+    private long[] lastBlock = new long[INITIAL_SLOTS];
+    private int[] lastLook = new int[INITIAL_SLOTS];
+    private boolean[] afk = new boolean[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+    private int nextSlot;
 
     public AFKManager(SinglePlayerSleep plugin) {
         this.plugin = plugin;
-        startAFKChecker();
+        this.deadlines = new TimingWheel(Bukkit.getCurrentTick(), INITIAL_SLOTS);
     }
 
     /**
-     * Start the AFK checker task
+     * Advance the AFK deadline wheel, called once per tick by the orchestrator
+     * @param tick Current server tick
      */
-    private void startAFKChecker() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!plugin.getConfigManager().isAFKDetectionEnabled()) {
-                    return;
-                }
-
-                for (Player player : plugin.getServer().getOnlinePlayers()) {
-                    checkPlayerMovement(player);
-                }
-            }
-        }.runTaskTimer(plugin, 20L, 20L); // Check every second
+    public void tick(long tick) {
+        deadlines.advance(tick, expireSlot);
     }
 
     /**
-     * Check if player has moved and update their activity
-     * @param player Player to check
+     * Handle a move event. Positions that stay in the same block and look
+     * bucket return before touching the slot table.
+     * @param player Player that moved
+     * @param from Previous location
+     * @param to New location
      */
-    private void checkPlayerMovement(Player player) {
-        UUID uuid = player.getUniqueId();
-        Location currentLocation = player.getLocation();
+    public void handleMove(Player player, Location from, Location to) {
+        if (to == null) {
+            return;
+        }
 
-        Location lastLoc = lastLocation.get(uuid);
-        if (lastLoc != null) {
-            // Check if player moved significantly
-            if (hasMoved(lastLoc, currentLocation)) {
-                updateActivity(player);
-            }
-        } else {
-            updateActivity(player);
+        long block = packBlock(to);
+        int look = packLook(to);
+        if (block == packBlock(from) && look == packLook(from) && from.getWorld() == to.getWorld()) {
+            return;
         }
 
-        lastLocation.put(uuid, currentLocation.clone());
+        if (plugin.getTaskScheduler().isGlobalThread()) {
+            recordPosition(player, block, look);
+        } else {
+            plugin.getTaskScheduler().executeGlobal(() -> recordPosition(player, block, look));
+        }
     }
 
     /**
-     * Check if player has moved significantly
-     * @param from Previous location
-     * @param to Current location
-     * @return true if player moved
+     * Record a new position and count it as activity if it changed
      */
-    private boolean hasMoved(Location from, Location to) {
-        if (!from.getWorld().equals(to.getWorld())) {
-            return true;
+    private void recordPosition(Player player, long block, int look) {
+        int slot = slotOf(player);
+        if (lastBlock[slot] == block && lastLook[slot] == look) {
+            return;
         }
 
-        double distance = from.distanceSquared(to);
-        return distance > 0.1; // Moved more than 0.1 blocks
+        lastBlock[slot] = block;
+        lastLook[slot] = look;
+        recordActivity(slot);
     }
 
     /**
@@ -82,8 +102,24 @@ public class AFKManager {
      * @param player Player to update
      */
     public void updateActivity(Player player) {
-        lastActivity.put(player.getUniqueId(), System.currentTimeMillis());
-        plugin.debugLog("Updated activity for " + player.getName());
+        plugin.getTaskScheduler().executeGlobal(() -> recordActivity(slotOf(player)));
+    }
+
+    /**
+     * Start tracking a player, reusing their slot if they already have one
+     * @param player Player to track
+     */
+    public void trackPlayer(Player player) {
+        Location location = player.getLocation();
+        long block = packBlock(location);
+        int look = packLook(location);
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            int slot = slotOf(player);
+            players[slot] = player;
+            lastBlock[slot] = block;
+            lastLook[slot] = look;
+            recordActivity(slot);
+        });
     }
 
     /**
@@ -96,15 +132,8 @@ public class AFKManager {
             return false;
         }
 
-        Long lastActive = lastActivity.get(player.getUniqueId());
-        if (lastActive == null) {
-            return false;
-        }
-
-        long afkTimeout = plugin.getConfigManager().getAFKTimeout() * 1000L;
-        long timeSinceActive = System.currentTimeMillis() - lastActive;
-
-        return timeSinceActive >= afkTimeout;
+        int slot = slotIndex.get(player.getUniqueId());
+        return slot >= 0 && afk[slot];
     }
 
     /**
@@ -123,9 +152,22 @@ public class AFKManager {
      * @param player Player to remove
      */
     public void removePlayer(Player player) {
-        UUID uuid = player.getUniqueId();
-        lastActivity.remove(uuid);
-        lastLocation.remove(uuid);
+        plugin.getTaskScheduler().executeGlobal(() -> releaseSlot(player));
+    }
+
+    private void releaseSlot(Player player) {
+        int slot = slotIndex.remove(player.getUniqueId());
+        if (slot < 0) {
+            return;
+        }
+
+        deadlines.cancel(slot);
+        players[slot] = null;
+        afk[slot] = false;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
         plugin.debugLog("Removed " + player.getName() + " from AFK tracking");
     }
 
@@ -135,11 +177,118 @@ public class AFKManager {
      * @return Seconds since last activity, or 0 if unknown
      */
     public long getTimeSinceActive(Player player) {
-        Long lastActive = lastActivity.get(player.getUniqueId());
-        if (lastActive == null) {
+        int slot = slotIndex.get(player.getUniqueId());
+        if (slot < 0) {
             return 0;
         }
 
-        return (System.currentTimeMillis() - lastActive) / 1000L;
+        return (Bukkit.getCurrentTick() - lastActivity[slot]) / 20L;
+    }
+
+    /**
+     * Record activity in a slot, bringing the player back from AFK and
+     * moving their deadline
+     */
+    private void recordActivity(int slot) {
+        lastActivity[slot] = Bukkit.getCurrentTick();
+
+        if (!plugin.getConfigManager().isAFKDetectionEnabled()) {
+            return;
+        }
+
+        if (afk[slot]) {
+            if (!changeState(slot, false)) {
+                return; // Still AFK, no deadline until the state changes
+            }
+        }
+
+        deadlines.schedule(slot, lastActivity[slot] + getTimeoutTicks());
+    }
+
+    /**
+     * Called by the wheel when a slot's AFK deadline elapses
+     */
+    private void expire(int slot) {
+        if (players[slot] == null || afk[slot] || !plugin.getConfigManager().isAFKDetectionEnabled()) {
+            return;
+        }
+
+        if (!changeState(slot, true)) {
+            // Listener kept the player active, check again after another timeout
+            deadlines.schedule(slot, deadlines.getCurrentTick() + getTimeoutTicks());
+        }
+    }
+
+    /**
+     * Fire the state change event and apply the new state if allowed
+     * @return true if the state changed
+     */
+    private boolean changeState(int slot, boolean nowAFK) {
+        Player player = players[slot];
+        if (player == null) {
+            afk[slot] = nowAFK;
+            return true;
+        }
+
+        PlayerAFKStateChangeEvent event = new PlayerAFKStateChangeEvent(player, nowAFK);
+        plugin.getServer().getPluginManager().callEvent(event);
+        if (event.isCancelled()) {
+            return false;
+        }
+
+        afk[slot] = nowAFK;
+        plugin.debugLog(player.getName() + (nowAFK ? " is now AFK" : " is no longer AFK"));
+        return true;
+    }
+
+    private long getTimeoutTicks() {
+        return plugin.getConfigManager().getAFKTimeout() * 20L;
+    }
+
+    /**
+     * Get the slot of a player, assigning one if they are not tracked yet
+     */
+    private int slotOf(Player player) {
+        UUID uuid = player.getUniqueId();
+        int slot = slotIndex.get(uuid);
+        if (slot >= 0) {
+            return slot;
+        }
+
+        slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        if (slot >= lastActivity.length) {
+            int capacity = lastActivity.length << 1;
+            players = Arrays.copyOf(players, capacity);
+            lastActivity = Arrays.copyOf(lastActivity, capacity);
+            lastBlock = Arrays.copyOf(lastBlock, capacity);
+            lastLook = Arrays.copyOf(lastLook, capacity);
+            afk = Arrays.copyOf(afk, capacity);
+        }
+
+        slotIndex.put(uuid, slot);
+        players[slot] = player;
+        lastBlock[slot] = Long.MIN_VALUE;
+        lastLook[slot] = Integer.MIN_VALUE;
+        afk[slot] = false;
+        recordActivity(slot);
+        return slot;
+    }
+
+    /**
+     * Pack block coordinates into a long (26 bits x, 26 bits z, 12 bits y)
+     */
+    private static long packBlock(Location location) {
+        return ((long) (location.getBlockX() & 0x3FFFFFF) << 38)
+                | ((long) (location.getBlockZ() & 0x3FFFFFF) << 12)
+                | (location.getBlockY() & 0xFFF);
+    }
+
+    /**
+     * Pack yaw and pitch buckets into an int
+     */
+    private static int packLook(Location location) {
+        int yaw = (int) Math.floor(location.getYaw() / LOOK_BUCKET_DEGREES);
+        int pitch = (int) Math.floor(location.getPitch() / LOOK_BUCKET_DEGREES);
+        return (yaw << 16) | (pitch & 0xFFFF);
     }
 }
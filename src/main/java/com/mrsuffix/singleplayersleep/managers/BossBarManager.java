@@ -1,106 +1,239 @@
 package com.mrsuffix.singleplayersleep.managers;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.utils.ComponentTemplate;
+import com.mrsuffix.singleplayersleep.world.WorldSleepState;
 import net.kyori.adventure.bossbar.BossBar;
-import org.bukkit.Bukkit;
+import net.kyori.adventure.text.Component;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * Manages the BossBar display for sleeping players
+ *
+ * Every world has one BossBar that all of its players view, so a progress
+ * update is a single mutation regardless of the number of viewers. Players
+ * only get their own BossBar when the title contains {player}.
+ *
+ * Countdown progress is quantized to the steps a player can actually see,
+ * either the bar's segments or the configured minimum delta, and only sent
+ * when it moves to another step.
  */
 public class BossBarManager {
 
+    // Title placeholders, a token's index is its slot in the title template
+    public static final String[] TITLE_PLACEHOLDERS = {"{percentage}", "{current}", "{required}", "{player}"};
+    private static final int SLOT_PLAYER = 3;
+
     private final SinglePlayerSleep plugin;
-    private final Map<UUID, BossBar> playerBossBars = new HashMap<>();
+    private final Map<UUID, WorldBossBar> worldBossBars = new HashMap<>();
+
+    // Countdown progress updates over all bars, for debugging
+    private long sentUpdates;
+    private long suppressedUpdates;
 
     public BossBarManager(SinglePlayerSleep plugin) {
         this.plugin = plugin;
     }
 
     /**
-     * Create or update BossBar for a player
-     * 
-     * @param player          Player to show BossBar to
+     * Create or update the BossBar of a world and show it to all its players
+     *
+     * @param state           World state
      * @param percentage      Sleep percentage (0-100)
      * @param totalPlayers    Total players count
      * @param sleepingPlayers Sleeping players count
      */
-    public void showBossBar(Player player, int percentage, int totalPlayers, int sleepingPlayers) {
-        if (!plugin.getConfigManager().isBossBarEnabled()) {
+    public void showBossBar(WorldSleepState state, int percentage, int totalPlayers, int sleepingPlayers) {
+        if (!state.getSettings().isBossBarEnabled()) {
             return;
         }
 
-        String title = plugin.getConfigManager().getBossBarTitle()
-                .replace("{player}", player.getName())
-                .replace("{percentage}", String.valueOf(percentage))
-                .replace("{current}", String.valueOf(sleepingPlayers))
-                .replace("{required}", String.valueOf(totalPlayers));
+        ComponentTemplate title = plugin.getConfigManager().getBossBarTitleTemplate();
+        boolean perPlayer = title.uses(SLOT_PLAYER);
+        String[] values = {String.valueOf(percentage), String.valueOf(sleepingPlayers), String.valueOf(totalPlayers), null};
 
         // Use cached Enums from ConfigManager
         BossBar.Color color = plugin.getConfigManager().getBossBarColor();
         BossBar.Overlay style = plugin.getConfigManager().getBossBarStyle();
+        float progress = Math.max(0.0f, Math.min(1.0f, (float) percentage / 100.0f));
+
+        WorldBossBar worldBar = worldBossBars.get(state.getWorldId());
+        if (worldBar == null) {
+            worldBar = new WorldBossBar(BossBar.bossBar(Component.empty(), progress, color, style));
+            worldBossBars.put(state.getWorldId(), worldBar);
+        }
 
-        // Check if player already has a bossbar
-        BossBar bossBar = playerBossBars.get(player.getUniqueId());
-
-        if (bossBar == null) {
-            // Create new if not exists
-            bossBar = BossBar.bossBar(
-                    net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacyAmpersand()
-                            .deserialize(title),
-                    (float) percentage / 100.0f,
-                    color,
-                    style);
-
-            player.showBossBar(bossBar);
-            playerBossBars.put(player.getUniqueId(), bossBar);
-        } else {
-            // Update existing
-            bossBar.name(net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacyAmpersand()
-                    .deserialize(title));
-            bossBar.progress(Math.max(0.0f, Math.min(1.0f, (float) percentage / 100.0f)));
-            bossBar.color(color);
-            bossBar.overlay(style);
+        // Update the shared bar
+        worldBar.perPlayer = perPlayer;
+        worldBar.shared.name(perPlayer ? Component.empty() : title.render(values));
+        worldBar.shared.progress(progress);
+        worldBar.lastProgress = progress;
+        worldBar.shared.color(color);
+        worldBar.shared.overlay(style);
+
+        World world = state.getWorld();
+        List<Player> players = world.getPlayers();
+
+        // Hide the bar from viewers that left the world
+        Iterator<Map.Entry<Player, BossBar>> viewers = worldBar.viewers.entrySet().iterator();
+        while (viewers.hasNext()) {
+            Map.Entry<Player, BossBar> viewer = viewers.next();
+            Player player = viewer.getKey();
+            BossBar bossBar = viewer.getValue();
+            if (!player.isOnline()) {
+                viewers.remove();
+            } else if (player.getWorld() != world || (bossBar == worldBar.shared) == perPlayer) {
+                viewers.remove();
+                plugin.getTaskScheduler().runAtEntity(player, () -> player.hideBossBar(bossBar));
+            }
+        }
+
+        for (Player player : players) {
+            BossBar bossBar = worldBar.viewers.get(player);
+            if (perPlayer) {
+                values[SLOT_PLAYER] = player.getName();
+                Component name = title.render(values);
+                if (bossBar == null) {
+                    bossBar = BossBar.bossBar(name, progress, color, style);
+                } else {
+                    bossBar.name(name);
+                    bossBar.progress(progress);
+                    bossBar.color(color);
+                    bossBar.overlay(style);
+                    continue;
+                }
+            } else if (bossBar == null) {
+                bossBar = worldBar.shared;
+            } else {
+                continue;
+            }
+
+            BossBar shown = bossBar;
+            worldBar.viewers.put(player, shown);
+            plugin.getTaskScheduler().runAtEntity(player, () -> player.showBossBar(shown));
         }
     }
 
     /**
-     * Update progress of existing BossBars without recreating them
-     * 
-     * @param progress    Progress from 0.0 to 1.0
-     * @param customTitle Optional custom title, null to keep existing
+     * Update progress of a world's BossBar without recreating it
+     *
+     * @param state    World state
+     * @param progress Progress from 0.0 to 1.0
      */
-    public void updateAllProgress(float progress, String customTitle) {
-        if (!plugin.getConfigManager().isBossBarEnabled())
+    public void updateProgress(WorldSleepState state, float progress) {
+        if (!state.getSettings().isBossBarEnabled())
             return;
 
-        net.kyori.adventure.text.Component titleComp = null;
-        if (customTitle != null) {
-            titleComp = net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacyAmpersand()
-                    .deserialize(customTitle);
+        WorldBossBar worldBar = worldBossBars.get(state.getWorldId());
+        if (worldBar == null) {
+            return;
         }
 
-        for (BossBar bar : playerBossBars.values()) {
-            bar.progress(Math.max(0.0f, Math.min(1.0f, progress)));
-            if (titleComp != null) {
-                bar.name(titleComp);
-            }
+        float quantized = quantize(Math.max(0.0f, Math.min(1.0f, progress)));
+        if (quantized == worldBar.lastProgress) {
+            worldBar.suppressed++;
+            suppressedUpdates++;
+            return;
+        }
+
+        worldBar.lastProgress = quantized;
+        worldBar.sent++;
+        sentUpdates++;
+        if (!worldBar.perPlayer) {
+            worldBar.shared.progress(quantized);
+            return;
+        }
+
+        for (BossBar bar : worldBar.viewers.values()) {
+            bar.progress(quantized);
+        }
+    }
+
+    /**
+     * Round progress down to the last step a player can see
+     */
+    private float quantize(float progress) {
+        if (progress >= 1.0f) {
+            return 1.0f;
+        }
+
+        int steps;
+        switch (plugin.getConfigManager().getBossBarStyle()) {
+            case NOTCHED_6:
+                steps = 6;
+                break;
+            case NOTCHED_10:
+                steps = 10;
+                break;
+            case NOTCHED_12:
+                steps = 12;
+                break;
+            case NOTCHED_20:
+                steps = 20;
+                break;
+            default:
+                steps = Integer.MAX_VALUE;
+                break;
+        }
+
+        float minDelta = plugin.getConfigManager().getBossBarMinDelta();
+        if (minDelta > 0.0f) {
+            steps = Math.min(steps, Math.max(1, Math.round(1.0f / minDelta)));
+        }
+        if (steps == Integer.MAX_VALUE) {
+            return progress;
+        }
+
+        return (float) Math.floor(progress * steps) / steps;
+    }
+
+    /**
+     * Get the number of countdown progress updates sent to players
+     *
+     * @return Sent updates
+     */
+    public long getSentUpdates() {
+        return sentUpdates;
+    }
+
+    /**
+     * Get the number of countdown progress updates that were not visible and skipped
+     *
+     * @return Suppressed updates
+     */
+    public long getSuppressedUpdates() {
+        return suppressedUpdates;
+    }
+
+    /**
+     * Remove the BossBar of a world from all its viewers
+     *
+     * @param state World state
+     */
+    public void removeBossBars(WorldSleepState state) {
+        WorldBossBar worldBar = worldBossBars.remove(state.getWorldId());
+        if (worldBar != null) {
+            plugin.debugLog("BossBar of world " + state.getWorldName() + " sent " + worldBar.sent
+                    + " progress updates, suppressed " + worldBar.suppressed);
+            hide(worldBar);
         }
     }
 
     /**
-     * Remove BossBar from a player
-     * 
-     * @param player Player to remove BossBar from
+     * Forget a player that left the server, their client drops its BossBars
+     *
+     * @param player Player that quit
      */
-    public void removeBossBar(Player player) {
-        BossBar bossBar = playerBossBars.remove(player.getUniqueId());
-        if (bossBar != null) {
-            player.hideBossBar(bossBar);
+    public void removePlayer(Player player) {
+        for (WorldBossBar worldBar : worldBossBars.values()) {
+            worldBar.viewers.remove(player);
         }
     }
 
@@ -108,12 +241,36 @@ public class BossBarManager {
      * Remove BossBars from all players
      */
     public void removeAllBossBars() {
-        for (UUID uuid : playerBossBars.keySet()) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null) {
-                player.hideBossBar(playerBossBars.get(uuid));
+        for (WorldBossBar worldBar : worldBossBars.values()) {
+            hide(worldBar);
+        }
+        worldBossBars.clear();
+    }
+
+    private void hide(WorldBossBar worldBar) {
+        for (Map.Entry<Player, BossBar> viewer : worldBar.viewers.entrySet()) {
+            Player player = viewer.getKey();
+            BossBar bossBar = viewer.getValue();
+            if (player.isOnline()) {
+                plugin.getTaskScheduler().runAtEntity(player, () -> player.hideBossBar(bossBar));
             }
         }
-        playerBossBars.clear();
+        worldBar.viewers.clear();
+    }
+
+    /**
+     * The shared BossBar of a world and the bar each viewer currently sees
+     */
+    private static final class WorldBossBar {
+        private final BossBar shared;
+        private final Map<Player, BossBar> viewers = new HashMap<>();
+        private boolean perPlayer;
+        private float lastProgress = -1.0f;
+        private int sent;
+        private int suppressed;
+
+        private WorldBossBar(BossBar shared) {
+            this.shared = shared;
+        }
     }
 }
@@ -1,99 +1,238 @@
 package com.mrsuffix.singleplayersleep.managers;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.utils.ComponentTemplate;
+import com.mrsuffix.singleplayersleep.world.BroadcastScope;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
+import net.kyori.adventure.bossbar.BossBar;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
-
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Manages plugin configuration
+ *
+ * The config is parsed into an immutable ConfigSnapshot and published with a
+ * single reference swap. Reloads parse and validate off the main thread and
+ * keep the current snapshot if the new config has errors.
  */
 public class ConfigManager {
 
+    // Top-level debug-mode value, patched in place when debug mode is toggled
+    private static final Pattern DEBUG_MODE = Pattern.compile("^(debug-mode:[ \\t]*)([^\\s#]*)", Pattern.MULTILINE);
+
     private final SinglePlayerSleep plugin;
-    private FileConfiguration config;
-
-    // Cache for frequently accessed config values
-    private long sleepDelay;
-    private long autoSaveDelay;
-    private boolean autoSaveEnabled;
-    private long cooldownDuration;
-    private boolean clearWeather;
-    private boolean debugMode;
-    private boolean particlesEnabled;
-    private boolean soundsEnabled;
-    private boolean percentageMode;
-    private int sleepPercentage;
-    private boolean afkDetectionEnabled;
-    private long afkTimeout;
-    private boolean ignoreAFKPlayers;
-    private boolean particleOptimize;
-    private int maxParticlesPerPlayer;
-    private boolean updateCheckerEnabled;
-    private String githubRepo;
-
-    // New Config Values
-    private boolean bossBarEnabled;
-    private String bossBarTitle;
-    private String bossBarColor;
-    private String bossBarStyle;
-    private boolean smoothSleepEnabled;
-    private long smoothSleepSpeed;
+    private final File configFile;
+
+    // Published on the global region, read from any thread
+    private volatile ConfigSnapshot snapshot;
+    private volatile boolean debugMode;
+
+    // SHA-256 of config.yml as last read or written, to skip reloads of unchanged files
+    private volatile byte[] lastDigest;
+
+    // Serializes reads and writes of config.yml
+    private final Object fileLock = new Object();
 
     public ConfigManager(SinglePlayerSleep plugin) {
         this.plugin = plugin;
+        this.configFile = new File(plugin.getDataFolder(), "config.yml");
     }
 
     /**
-     * Load configuration from file
+     * Load configuration from file on startup. Errors are logged and the
+     * invalid values replaced by their defaults, as there is no previous
+     * config to keep.
      */
     public void loadConfig() {
         plugin.saveDefaultConfig();
-        plugin.reloadConfig();
-        this.config = plugin.getConfig();
 
-        // Update config with new values if missing
-        updateConfig();
+        YamlConfiguration yaml;
+        try {
+            yaml = readConfig(false);
+        } catch (IOException | InvalidConfigurationException e) {
+            plugin.getLogger().severe("Could not load config.yml, using defaults: " + e.getMessage());
+            yaml = new YamlConfiguration();
+        }
 
-        // Cache all config values
-        cacheConfigValues();
+        ConfigSnapshot loaded = new ConfigSnapshot(yaml);
+        for (String error : loaded.getErrors()) {
+            plugin.getLogger().warning("Invalid config: " + error);
+        }
 
+        apply(loaded);
         plugin.debugLog("Configuration loaded and cached");
     }
 
+    /**
+     * Reload configuration off the main thread. The new config is only
+     * applied if it is valid.
+     *
+     * @param callback Called on the global region with the errors found,
+     *                 empty if the new config was applied
+     */
+    public void reloadConfig(Consumer<List<String>> callback) {
+        plugin.getTaskScheduler().runAsync(() -> reload(false, callback));
+    }
+
+    /**
+     * Reload configuration if config.yml changed since it was last read.
+     * Must be called off the main thread.
+     *
+     * @param callback Called on the global region with the errors found,
+     *                 not called at all if the file is unchanged
+     */
+    public void reloadIfChanged(Consumer<List<String>> callback) {
+        reload(true, callback);
+    }
+
+    private void reload(boolean onlyIfChanged, Consumer<List<String>> callback) {
+        ConfigSnapshot loaded;
+        List<String> errors;
+        try {
+            YamlConfiguration yaml = readConfig(onlyIfChanged);
+            if (yaml == null) {
+                return; // Unchanged
+            }
+            loaded = new ConfigSnapshot(yaml);
+            errors = loaded.getErrors();
+        } catch (IOException | InvalidConfigurationException e) {
+            loaded = null;
+            errors = Collections.singletonList("Could not read config.yml: " + e.getMessage());
+        }
+
+        ConfigSnapshot valid = errors.isEmpty() ? loaded : null;
+        // Message files are read here too, the global region only swaps them in
+        Map<String, MessageManager.MessageBundle> bundles = valid != null
+                ? plugin.getMessageManager().readBundles() : null;
+        List<String> found = errors;
+        plugin.getTaskScheduler().executeGlobal(() -> {
+            if (valid != null) {
+                apply(valid);
+                plugin.getMessageManager().setBundles(bundles);
+                plugin.getWorldStateManager().reloadSettings();
+                plugin.getWorldStateManager().recountAll();
+                plugin.getConfigWatcher().update();
+                plugin.debugLog("Configuration reloaded");
+            }
+            callback.accept(found);
+        });
+    }
+
+    /**
+     * Read config.yml and add settings introduced by newer versions
+     *
+     * @param onlyIfChanged Skip the file if its contents did not change since it was last read
+     * @return Loaded config, null if skipped
+     */
+    private YamlConfiguration readConfig(boolean onlyIfChanged) throws IOException, InvalidConfigurationException {
+        synchronized (fileLock) {
+            return readConfigLocked(onlyIfChanged);
+        }
+    }
+
+    private YamlConfiguration readConfigLocked(boolean onlyIfChanged) throws IOException, InvalidConfigurationException {
+        byte[] contents = Files.readAllBytes(configFile.toPath());
+        byte[] digest = sha256(contents);
+        if (onlyIfChanged && Arrays.equals(digest, lastDigest)) {
+            return null;
+        }
+        lastDigest = digest;
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(new String(contents, StandardCharsets.UTF_8));
+
+        // Update config with new values if missing
+        if (updateConfig(yaml)) {
+            byte[] updated = yaml.saveToString().getBytes(StandardCharsets.UTF_8);
+            Files.write(configFile.toPath(), updated);
+            lastDigest = sha256(updated); // Our own write is not a change to reload
+            plugin.debugLog("Configuration updated with new values");
+        }
+        return yaml;
+    }
+
+    private static byte[] sha256(byte[] contents) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(contents);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Publish a snapshot
+     */
+    private void apply(ConfigSnapshot loaded) {
+        this.debugMode = loaded.debugMode;
+        this.snapshot = loaded;
+    }
+
     /**
      * Update configuration with new values (preserves existing settings)
+     *
+     * @param config Loaded config
+     * @return true if values were added
      */
-    private void updateConfig() {
+    private static boolean updateConfig(FileConfiguration config) {
         boolean changed = false;
 
         // BossBar Settings (Added in v1.2.0)
-        changed |= setIfMissing("effects.bossbar.enabled", true);
-        changed |= setIfMissing("effects.bossbar.title", "&e&lSleeping... &f({percentage}%)");
-        changed |= setIfMissing("effects.bossbar.color", "BLUE");
-        changed |= setIfMissing("effects.bossbar.style", "SOLID");
+        changed |= setIfMissing(config, "effects.bossbar.enabled", true);
+        changed |= setIfMissing(config, "effects.bossbar.title", "&e&lSleeping... &f({percentage}%)");
+        changed |= setIfMissing(config, "effects.bossbar.color", "BLUE");
+        changed |= setIfMissing(config, "effects.bossbar.style", "SOLID");
+        changed |= setIfMissing(config, "effects.bossbar.min-progress-delta", 0.01);
 
         // Smooth Sleep Settings (Added in v1.2.0)
-        changed |= setIfMissing("effects.smooth-sleep.enabled", true);
-        changed |= setIfMissing("effects.smooth-sleep.speed", 100L);
+        changed |= setIfMissing(config, "effects.smooth-sleep.enabled", true);
+        changed |= setIfMissing(config, "effects.smooth-sleep.speed", 100L);
+        changed |= setIfMissing(config, "effects.smooth-sleep.duration-ticks", 100);
+        changed |= setIfMissing(config, "effects.smooth-sleep.easing", "ease-in-out");
+        changed |= setIfMissing(config, "effects.smooth-sleep.mode", "client");
+        changed |= setIfMissing(config, "effects.smooth-sleep.client-update-interval", 1);
+
+        // Broadcast Settings
+        changed |= setIfMissing(config, "broadcast.scope", "world");
+        changed |= setIfMissing(config, "anti-spam-window-ticks", 20L);
+        changed |= setIfMissing(config, "messages.sleep-summary", "&e{sleeping} players are sleeping ({percentage}%)");
 
         // Messages (Added in v1.2.0)
-        changed |= setIfMissing("messages.player-woke-up", "&e{player} woke up! Night skip cancelled.");
+        changed |= setIfMissing(config, "messages.player-woke-up", "&e{player} woke up! Night skip cancelled.");
 
-        if (changed) {
-            plugin.saveConfig();
-            plugin.debugLog("Configuration updated with new values");
-        }
+        // Config Watcher
+        changed |= setIfMissing(config, "config-watcher.enabled", false);
+        changed |= setIfMissing(config, "config-watcher.debounce-ms", 500L);
+
+        // Statistics
+        changed |= setIfMissing(config, "statistics.save-interval-seconds", 300L);
+
+        return changed;
     }
 
     /**
      * Set a config value if it doesn't exist
      * 
+     * @param config       Loaded config
      * @param path         Config path
      * @param defaultValue Default value
      * @return true if the value was set
      */
-    private boolean setIfMissing(String path, Object defaultValue) {
+    private static boolean setIfMissing(FileConfiguration config, String path, Object defaultValue) {
         if (!config.contains(path)) {
             config.set(path, defaultValue);
             return true;
@@ -101,54 +240,13 @@ public class ConfigManager {
         return false;
     }
 
-    /**
-     * Cache all config values for better performance
-     */
-    private void cacheConfigValues() {
-        sleepDelay = config.getLong("sleep-delay-ticks", 65L);
-        autoSaveDelay = config.getLong("auto-save.delay-ticks", 10L);
-        autoSaveEnabled = config.getBoolean("auto-save.enabled", true);
-        cooldownDuration = config.getLong("cooldown-seconds", 30L);
-        clearWeather = config.getBoolean("clear-weather", true);
-        debugMode = config.getBoolean("debug-mode", false);
-        particlesEnabled = config.getBoolean("effects.particles.enabled", true);
-        soundsEnabled = config.getBoolean("effects.sounds.enabled", true);
-        percentageMode = config.getBoolean("percentage-mode", false);
-        sleepPercentage = config.getInt("sleep-percentage", 50);
-        afkDetectionEnabled = config.getBoolean("afk-detection.enabled", true);
-        afkTimeout = config.getLong("afk-detection.timeout-seconds", 300L);
-        ignoreAFKPlayers = config.getBoolean("afk-detection.ignore-afk-players", true);
-        particleOptimize = config.getBoolean("effects.particles.optimize", true);
-        maxParticlesPerPlayer = config.getInt("effects.particles.max-per-player", 10);
-        updateCheckerEnabled = config.getBoolean("update-checker.enabled", true);
-        githubRepo = config.getString("update-checker.github-repo", "MRsuffixx/SinglePlayerSleep");
-
-        // Load New Values
-        bossBarEnabled = config.getBoolean("effects.bossbar.enabled", true);
-        bossBarTitle = config.getString("effects.bossbar.title", "&e&lSleeping... &f({percentage}%)");
-        bossBarColor = config.getString("effects.bossbar.color", "BLUE");
-        bossBarStyle = config.getString("effects.bossbar.style", "SOLID");
-
-        smoothSleepEnabled = config.getBoolean("effects.smooth-sleep.enabled", true);
-        smoothSleepSpeed = config.getLong("effects.smooth-sleep.speed", 100L);
-    }
-
-    /**
-     * Get sleep delay in ticks
-     * 
-     * @return Delay in ticks (default: 65)
-     */
-    public long getSleepDelay() {
-        return sleepDelay;
-    }
-
     /**
      * Get auto-save delay in ticks
      * 
      * @return Delay in ticks (default: 10)
      */
     public long getAutoSaveDelay() {
-        return autoSaveDelay;
+        return snapshot.autoSaveDelay;
     }
 
     /**
@@ -157,25 +255,7 @@ public class ConfigManager {
      * @return true if enabled
      */
     public boolean isAutoSaveEnabled() {
-        return autoSaveEnabled;
-    }
-
-    /**
-     * Get cooldown duration in seconds
-     * 
-     * @return Cooldown in seconds
-     */
-    public long getCooldownDuration() {
-        return cooldownDuration;
-    }
-
-    /**
-     * Check if weather should be cleared
-     * 
-     * @return true if weather should be cleared
-     */
-    public boolean shouldClearWeather() {
-        return clearWeather;
+        return snapshot.autoSaveEnabled;
     }
 
     /**
@@ -194,69 +274,115 @@ public class ConfigManager {
      */
     public void setDebugMode(boolean enabled) {
         this.debugMode = enabled;
-        config.set("debug-mode", enabled);
-        plugin.saveConfig();
+        plugin.getTaskScheduler().runAsync(() -> saveDebugMode(enabled));
     }
 
-    public boolean isLogSleepEventsEnabled() {
-        return config.getBoolean("log-sleep-events", false);
+    /**
+     * Patch debug-mode into config.yml as it is on disk, leaving the rest of
+     * the file untouched. Must be called off the main thread.
+     */
+    private void saveDebugMode(boolean enabled) {
+        synchronized (fileLock) {
+            try {
+                byte[] contents = Files.readAllBytes(configFile.toPath());
+                String text = new String(contents, StandardCharsets.UTF_8);
+                Matcher matcher = DEBUG_MODE.matcher(text);
+                String updated;
+                if (matcher.find()) {
+                    updated = text.substring(0, matcher.start(2)) + enabled + text.substring(matcher.end(2));
+                } else {
+                    String lineSeparator = text.contains("\r\n") ? "\r\n" : "\n";
+                    updated = text + (text.isEmpty() || text.endsWith("\n") ? "" : lineSeparator)
+                            + "debug-mode: " + enabled + lineSeparator;
+                }
+
+                byte[] written = updated.getBytes(StandardCharsets.UTF_8);
+                Files.write(configFile.toPath(), written);
+                // Only skip the reload of our own write if no other change is pending
+                if (Arrays.equals(sha256(contents), lastDigest)) {
+                    lastDigest = sha256(written);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save config.yml: " + e.getMessage());
+            }
+        }
     }
 
     /**
-     * Check if world is enabled for sleep functionality
+     * Resolve the settings of a world: the global settings with the first
+     * world profile matching its name applied on top.
+     * Loaded worlds keep theirs on WorldSleepState, use those instead.
      * 
-     * @param worldName World name to check
-     * @return true if enabled
+     * @param worldName World name
+     * @return Settings of the world
      */
-    public boolean isWorldEnabled(String worldName) {
-        List<String> enabledWorlds = config.getStringList("enabled-worlds");
-        return enabledWorlds.isEmpty() || enabledWorlds.contains(worldName);
+    public WorldSettings resolveWorldSettings(String worldName) {
+        return snapshot.resolveWorldSettings(worldName);
     }
 
     /**
-     * Get a message from config
+     * Get who receives the sleep broadcasts of a world
      * 
-     * @param key Message key
-     * @return Formatted message
+     * @return Broadcast scope
      */
-    public String getMessage(String key) {
-        return config.getString("messages." + key, "&cMessage not found: " + key);
+    public BroadcastScope getBroadcastScope() {
+        return snapshot.broadcastScope;
+    }
+
+    /**
+     * Check if sleep broadcasts are merged per anti-spam window
+     * 
+     * @return true if anti-spam protection is on
+     */
+    public boolean isAntiSpamProtectionEnabled() {
+        return snapshot.antiSpamProtection && snapshot.antiSpamWindow > 0;
     }
 
     /**
-     * Check if particles are enabled
+     * Get the length of the anti-spam window
      * 
-     * @return true if particles should be shown
+     * @return Window in ticks
      */
-    public boolean areParticlesEnabled() {
-        return particlesEnabled;
+    public long getAntiSpamWindow() {
+        return snapshot.antiSpamWindow;
     }
 
     /**
-     * Check if sounds are enabled
+     * Get the worlds that share broadcasts with a world
      * 
-     * @return true if sounds should be played
+     * @param worldName World name
+     * @return Worlds of its group, or just the world itself if it has none
      */
-    public boolean areSoundsEnabled() {
-        return soundsEnabled;
+    public List<String> getWorldGroup(String worldName) {
+        List<String> group = snapshot.worldGroups.get(worldName);
+        return group != null ? group : Collections.singletonList(worldName);
     }
 
     /**
-     * Check if percentage mode is enabled
+     * Get a message from config
      * 
-     * @return true if percentage mode is on
+     * @param key Message key
+     * @return Formatted message
      */
-    public boolean isPercentageMode() {
-        return percentageMode;
+    public String getMessage(String key) {
+        String message = snapshot.messages.get(key);
+        return message != null ? message : "&cMessage not found: " + key;
     }
 
     /**
-     * Get required sleep percentage
+     * Get a message compiled at load time
      * 
-     * @return Percentage of players required to sleep
+     * @param key Message key
+     * @return Template with slots as in MessageUtil.MESSAGE_PLACEHOLDERS
      */
-    public int getSleepPercentage() {
-        return sleepPercentage;
+    public ComponentTemplate getMessageTemplate(String key) {
+        ConfigSnapshot current = snapshot;
+        ComponentTemplate template = current.messageTemplates.get(key);
+        if (template != null) {
+            return template;
+        }
+        return current.missingTemplates.computeIfAbsent(key,
+                missing -> ComponentTemplate.compile("&cMessage not found: " + missing));
     }
 
     /**
@@ -265,7 +391,7 @@ public class ConfigManager {
      * @return true if AFK detection is on
      */
     public boolean isAFKDetectionEnabled() {
-        return afkDetectionEnabled;
+        return snapshot.afkDetectionEnabled;
     }
 
     /**
@@ -274,16 +400,7 @@ public class ConfigManager {
      * @return AFK timeout
      */
     public long getAFKTimeout() {
-        return afkTimeout;
-    }
-
-    /**
-     * Check if AFK players should be ignored
-     * 
-     * @return true if AFK players are ignored
-     */
-    public boolean shouldIgnoreAFKPlayers() {
-        return ignoreAFKPlayers;
+        return snapshot.afkTimeout;
     }
 
     /**
@@ -292,7 +409,7 @@ public class ConfigManager {
      * @return true if particles should be optimized
      */
     public boolean isParticleOptimizeEnabled() {
-        return particleOptimize;
+        return snapshot.particleOptimize;
     }
 
     /**
@@ -301,7 +418,7 @@ public class ConfigManager {
      * @return Max particles per player
      */
     public int getMaxParticlesPerPlayer() {
-        return maxParticlesPerPlayer;
+        return snapshot.maxParticlesPerPlayer;
     }
 
     /**
@@ -310,7 +427,7 @@ public class ConfigManager {
      * @return true if update checker is on
      */
     public boolean isUpdateCheckerEnabled() {
-        return updateCheckerEnabled;
+        return snapshot.updateCheckerEnabled;
     }
 
     /**
@@ -319,32 +436,84 @@ public class ConfigManager {
      * @return GitHub repo in format "owner/repo"
      */
     public String getGitHubRepo() {
-        return githubRepo;
+        return snapshot.githubRepo;
     }
 
-    // New Getters
+    /**
+     * Check if config.yml is reloaded automatically when it changes on disk
+     * 
+     * @return true if the config watcher is on
+     */
+    public boolean isConfigWatcherEnabled() {
+        return snapshot.configWatcherEnabled;
+    }
 
-    public boolean isBossBarEnabled() {
-        return bossBarEnabled;
+    /**
+     * Get how long config.yml has to be quiet before a change is reloaded
+     * 
+     * @return Debounce time in milliseconds
+     */
+    public long getConfigWatcherDebounce() {
+        return snapshot.configWatcherDebounce;
     }
 
+    /**
+     * Get how often changed statistics are written to disk
+     * 
+     * @return Interval in seconds
+     */
+    public long getStatisticsSaveInterval() {
+        return snapshot.statisticsSaveInterval;
+    }
+
+    // New Getters
+
     public String getBossBarTitle() {
-        return bossBarTitle;
+        return snapshot.bossBarTitle;
     }
 
-    public String getBossBarColor() {
-        return bossBarColor;
+    /**
+     * Get the BossBar title parsed at load time
+     * 
+     * @return Title template, slots as in BossBarManager.TITLE_PLACEHOLDERS
+     */
+    public ComponentTemplate getBossBarTitleTemplate() {
+        return snapshot.bossBarTitleTemplate;
+    }
+
+    public BossBar.Color getBossBarColor() {
+        return snapshot.bossBarColor;
     }
 
-    public String getBossBarStyle() {
-        return bossBarStyle;
+    public BossBar.Overlay getBossBarStyle() {
+        return snapshot.bossBarStyle;
+    }
+
+    /**
+     * Get the smallest BossBar progress change worth sending
+     * 
+     * @return Minimum delta (0.0 to 1.0)
+     */
+    public float getBossBarMinDelta() {
+        return snapshot.bossBarMinDelta;
     }
 
-    public boolean isSmoothSleepEnabled() {
-        return smoothSleepEnabled;
+    /**
+     * Check if smooth sleep is played on the clients only, setting the
+     * world time once at the end
+     * 
+     * @return true for client mode, false for world mode
+     */
+    public boolean isSmoothSleepClientSide() {
+        return snapshot.smoothSleepClientSide;
     }
 
-    public long getSmoothSleepSpeed() {
-        return smoothSleepSpeed;
+    /**
+     * Get how often viewers receive the animated time in client mode
+     * 
+     * @return Interval in ticks
+     */
+    public int getSmoothSleepClientInterval() {
+        return snapshot.smoothSleepClientInterval;
     }
 }
@@ -0,0 +1,362 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import com.mrsuffix.singleplayersleep.tasks.Easing;
+import com.mrsuffix.singleplayersleep.utils.ComponentTemplate;
+import com.mrsuffix.singleplayersleep.utils.MessageUtil;
+import com.mrsuffix.singleplayersleep.world.BroadcastScope;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
+import net.kyori.adventure.bossbar.BossBar;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One fully parsed and validated version of config.yml
+ *
+ * Built off the main thread and never modified afterwards, so ConfigManager
+ * can publish it with a single reference swap and readers never see a
+ * half-loaded config. Invalid values are recorded as errors and replaced by
+ * their defaults.
+ */
+final class ConfigSnapshot {
+
+    final long autoSaveDelay;
+    final boolean autoSaveEnabled;
+    final boolean debugMode;
+    final boolean afkDetectionEnabled;
+    final long afkTimeout;
+    final boolean particleOptimize;
+    final int maxParticlesPerPlayer;
+    final boolean updateCheckerEnabled;
+    final String githubRepo;
+    final boolean configWatcherEnabled;
+    final long configWatcherDebounce;
+    final long statisticsSaveInterval;
+
+    final BroadcastScope broadcastScope;
+    final boolean antiSpamProtection;
+    final long antiSpamWindow;
+    final Map<String, List<String>> worldGroups;
+
+    // Global settings and the world profiles applied on top of them
+    final WorldSettings settings;
+    final Set<String> enabledWorlds;
+    private final List<WorldProfile> worldProfiles;
+
+    final Map<String, String> messages;
+    final Map<String, ComponentTemplate> messageTemplates;
+    // Placeholders for keys missing from the config, compiled once on first use
+    final Map<String, ComponentTemplate> missingTemplates = new ConcurrentHashMap<>();
+
+    final String bossBarTitle;
+    final ComponentTemplate bossBarTitleTemplate;
+    final BossBar.Color bossBarColor;
+    final BossBar.Overlay bossBarStyle;
+    final float bossBarMinDelta;
+    final boolean smoothSleepClientSide;
+    final int smoothSleepClientInterval;
+
+    private final List<String> errors = new ArrayList<>();
+
+    ConfigSnapshot(ConfigurationSection config) {
+        autoSaveDelay = getLong(config, "auto-save.delay-ticks", 10L, 0L);
+        autoSaveEnabled = getBoolean(config, "auto-save.enabled", true);
+        debugMode = getBoolean(config, "debug-mode", false);
+        afkDetectionEnabled = getBoolean(config, "afk-detection.enabled", true);
+        afkTimeout = getLong(config, "afk-detection.timeout-seconds", 300L, 1L);
+        particleOptimize = getBoolean(config, "effects.particles.optimize", true);
+        maxParticlesPerPlayer = (int) getLong(config, "effects.particles.max-per-player", 10L, 1L);
+        updateCheckerEnabled = getBoolean(config, "update-checker.enabled", true);
+        githubRepo = config.getString("update-checker.github-repo", "MRsuffixx/SinglePlayerSleep");
+        configWatcherEnabled = getBoolean(config, "config-watcher.enabled", false);
+        configWatcherDebounce = getLong(config, "config-watcher.debounce-ms", 500L, 0L);
+        statisticsSaveInterval = getLong(config, "statistics.save-interval-seconds", 300L, 1L);
+
+        broadcastScope = parseEnum(config, "broadcast.scope", "world", BroadcastScope.class, BroadcastScope.WORLD);
+        antiSpamProtection = getBoolean(config, "anti-spam-protection", true);
+        antiSpamWindow = getLong(config, "anti-spam-window-ticks", 20L, 0L);
+        worldGroups = loadWorldGroups(config);
+
+        validateSettings(config, "");
+        settings = WorldSettings.fromConfig(config);
+        enabledWorlds = Collections.unmodifiableSet(new HashSet<>(config.getStringList("enabled-worlds")));
+        worldProfiles = loadWorldProfiles(config);
+
+        Map<String, String> raw = new HashMap<>();
+        Map<String, ComponentTemplate> templates = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("messages");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                String message = section.getString(key);
+                if (message != null) {
+                    raw.put(key, message);
+                    templates.put(key, ComponentTemplate.compile(message, MessageUtil.MESSAGE_PLACEHOLDERS));
+                }
+            }
+        }
+        messages = Collections.unmodifiableMap(raw);
+        messageTemplates = Collections.unmodifiableMap(templates);
+
+        bossBarTitle = config.getString("effects.bossbar.title", "&e&lSleeping... &f({percentage}%)");
+        bossBarTitleTemplate = ComponentTemplate.compile(bossBarTitle, BossBarManager.TITLE_PLACEHOLDERS);
+        bossBarColor = parseEnum(config, "effects.bossbar.color", "BLUE", BossBar.Color.class, BossBar.Color.BLUE);
+        bossBarStyle = parseBossBarStyle(config.getString("effects.bossbar.style", "SOLID"));
+        bossBarMinDelta = (float) getDouble(config, "effects.bossbar.min-progress-delta", 0.01, 0.0, 1.0);
+
+        String mode = config.getString("effects.smooth-sleep.mode", "client");
+        if (!mode.equalsIgnoreCase("client") && !mode.equalsIgnoreCase("world")) {
+            errors.add("effects.smooth-sleep.mode must be client or world, was '" + mode + "'");
+        }
+        smoothSleepClientSide = !"world".equalsIgnoreCase(mode);
+        smoothSleepClientInterval = (int) getLong(config, "effects.smooth-sleep.client-update-interval", 1L, 1L);
+    }
+
+    /**
+     * Get the problems found while parsing
+     * @return Error descriptions, empty if the config is valid
+     */
+    List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Resolve the settings of a world: the global settings with the first
+     * world profile matching its name applied on top
+     * @param worldName World name
+     * @return Settings of the world
+     */
+    WorldSettings resolveWorldSettings(String worldName) {
+        boolean enabled = enabledWorlds.isEmpty() || enabledWorlds.contains(worldName);
+        for (WorldProfile profile : worldProfiles) {
+            if (profile.matches(worldName)) {
+                return profile.settings.withEnabled(profile.enabled != null ? profile.enabled : enabled);
+            }
+        }
+        return settings.withEnabled(enabled);
+    }
+
+    /**
+     * Index the configured world groups by member world
+     */
+    private static Map<String, List<String>> loadWorldGroups(ConfigurationSection config) {
+        Map<String, List<String>> groups = new HashMap<>();
+
+        ConfigurationSection section = config.getConfigurationSection("broadcast.world-groups");
+        if (section != null) {
+            for (String group : section.getKeys(false)) {
+                List<String> members = Collections.unmodifiableList(section.getStringList(group));
+                for (String world : members) {
+                    groups.put(world, members);
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Compile every world-profiles.* entry, in config order
+     */
+    private List<WorldProfile> loadWorldProfiles(ConfigurationSection config) {
+        List<WorldProfile> profiles = new ArrayList<>();
+
+        ConfigurationSection section = config.getConfigurationSection("world-profiles");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection profile = section.getConfigurationSection(name);
+                if (profile == null) {
+                    errors.add("world-profiles." + name + " must be a section");
+                    continue;
+                }
+
+                List<Pattern> patterns = new ArrayList<>();
+                for (String match : profile.getStringList("match")) {
+                    try {
+                        patterns.add(compileWorldPattern(match));
+                    } catch (PatternSyntaxException e) {
+                        errors.add("Invalid world pattern '" + match + "' in profile " + name + ": " + e.getDescription());
+                    }
+                }
+
+                validateSettings(profile, "world-profiles." + name + ".");
+                checkBoolean(profile, "world-profiles." + name + ".", "enabled");
+                Boolean enabled = profile.isSet("enabled") ? profile.getBoolean("enabled", true) : null;
+                profiles.add(new WorldProfile(patterns.toArray(new Pattern[0]), settings.withProfile(profile), enabled));
+            }
+        }
+
+        return Collections.unmodifiableList(profiles);
+    }
+
+    /**
+     * Compile a world name pattern, a glob with * and ? or a regular
+     * expression prefixed with "regex:"
+     */
+    private static Pattern compileWorldPattern(String match) {
+        if (match.startsWith("regex:")) {
+            return Pattern.compile(match.substring("regex:".length()));
+        }
+
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : match.toCharArray()) {
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            regex.append(c == '*' ? ".*" : ".");
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Check the keys WorldSettings reads, at the top level or in a profile
+     */
+    private void validateSettings(ConfigurationSection section, String prefix) {
+        checkBoolean(section, prefix, "percentage-mode");
+        checkRange(section, prefix, "sleep-percentage", 0L, 100L);
+        checkRange(section, prefix, "sleep-delay-ticks", 0L, Long.MAX_VALUE);
+        checkRange(section, prefix, "cooldown-seconds", 0L, Long.MAX_VALUE);
+        checkBoolean(section, prefix, "clear-weather");
+        checkBoolean(section, prefix, "log-sleep-events");
+        checkBoolean(section, prefix, "afk-detection.ignore-afk-players");
+        checkBoolean(section, prefix, "effects.particles.enabled");
+        checkBoolean(section, prefix, "effects.sounds.enabled");
+        checkBoolean(section, prefix, "effects.bossbar.enabled");
+        checkBoolean(section, prefix, "effects.smooth-sleep.enabled");
+        checkRange(section, prefix, "effects.smooth-sleep.speed", 1L, Long.MAX_VALUE);
+        checkRange(section, prefix, "effects.smooth-sleep.duration-ticks", 0L, WorldSettings.MAX_SMOOTH_SLEEP_DURATION);
+
+        String easing = section.getString("effects.smooth-sleep.easing");
+        if (easing != null && !isEnumConstant(Easing.class, easing)) {
+            errors.add(prefix + "effects.smooth-sleep.easing must be linear, ease-in-out or exponential, was '"
+                    + easing + "'");
+        }
+    }
+
+    private void checkBoolean(ConfigurationSection section, String prefix, String path) {
+        if (section.isSet(path) && !(section.get(path) instanceof Boolean)) {
+            errors.add(prefix + path + " must be true or false, was '" + section.get(path) + "'");
+        }
+    }
+
+    private void checkRange(ConfigurationSection section, String prefix, String path, long min, long max) {
+        if (!section.isSet(path)) {
+            return;
+        }
+
+        Object value = section.get(path);
+        if (!(value instanceof Number)) {
+            errors.add(prefix + path + " must be a number, was '" + value + "'");
+        } else if (((Number) value).longValue() < min || ((Number) value).longValue() > max) {
+            errors.add(prefix + path + " must be " + describeRange(min, max) + ", was " + value);
+        }
+    }
+
+    private boolean getBoolean(ConfigurationSection config, String path, boolean def) {
+        checkBoolean(config, "", path);
+        return config.getBoolean(path, def);
+    }
+
+    private long getLong(ConfigurationSection config, String path, long def, long min) {
+        checkRange(config, "", path, min, Long.MAX_VALUE);
+        long value = config.getLong(path, def);
+        return value >= min ? value : def;
+    }
+
+    private double getDouble(ConfigurationSection config, String path, double def, double min, double max) {
+        if (config.isSet(path) && !(config.get(path) instanceof Number)) {
+            errors.add(path + " must be a number, was '" + config.get(path) + "'");
+            return def;
+        }
+
+        double value = config.getDouble(path, def);
+        if (value < min || value > max) {
+            errors.add(path + " must be between " + min + " and " + max + ", was " + value);
+            return def;
+        }
+        return value;
+    }
+
+    private <E extends Enum<E>> E parseEnum(ConfigurationSection config, String path, String def,
+                                            Class<E> type, E fallback) {
+        String name = config.getString(path, def);
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            errors.add(path + " has unknown value '" + name + "'");
+            return fallback;
+        }
+    }
+
+    private BossBar.Overlay parseBossBarStyle(String name) {
+        // Accept the Bukkit style names used in config.yml as well as Adventure's
+        String overlay = name.trim().toUpperCase(Locale.ROOT).replace("SEGMENTED_", "NOTCHED_");
+        if (overlay.equals("SOLID")) {
+            return BossBar.Overlay.PROGRESS;
+        }
+        try {
+            return BossBar.Overlay.valueOf(overlay);
+        } catch (IllegalArgumentException e) {
+            errors.add("effects.bossbar.style has unknown value '" + name + "'");
+            return BossBar.Overlay.PROGRESS;
+        }
+    }
+
+    private static <E extends Enum<E>> boolean isEnumConstant(Class<E> type, String name) {
+        try {
+            Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String describeRange(long min, long max) {
+        if (max == Long.MAX_VALUE || max == Integer.MAX_VALUE) {
+            return "at least " + min;
+        }
+        return "between " + min + " and " + max;
+    }
+
+    /**
+     * A world profile, resolved except for whether it enables the world
+     */
+    private static final class WorldProfile {
+        private final Pattern[] patterns;
+        private final WorldSettings settings;
+        private final Boolean enabled;
+
+        private WorldProfile(Pattern[] patterns, WorldSettings settings, Boolean enabled) {
+            this.patterns = patterns;
+            this.settings = settings;
+            this.enabled = enabled;
+        }
+
+        private boolean matches(String worldName) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(worldName).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads config.yml when it changes on disk
+ *
+ * A daemon thread watches the plugin folder. A burst of write events is
+ * collapsed into one reload once the file has been quiet for the debounce
+ * time, and the file is only parsed if its contents actually changed. The
+ * new config is applied on the next tick of the global region, the main
+ * thread does no file I/O for it.
+ */
+public class ConfigWatcher implements Runnable {
+
+    private static final String CONFIG_FILE = "config.yml";
+
+    private final SinglePlayerSleep plugin;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile long debounceMillis;
+
+    public ConfigWatcher(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start or stop watching to match the current config,
+     * called on startup and after every reload
+     */
+    public synchronized void update() {
+        debounceMillis = plugin.getConfigManager().getConfigWatcherDebounce();
+        if (plugin.getConfigManager().isConfigWatcherEnabled()) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    private void start() {
+        if (thread != null) {
+            return;
+        }
+
+        Path folder = plugin.getDataFolder().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not watch " + folder + " for config changes: " + e.getMessage());
+            closeWatchService();
+            return;
+        }
+
+        thread = new Thread(this, "SinglePlayerSleep-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        plugin.debugLog("Watching " + CONFIG_FILE + " for changes");
+    }
+
+    /**
+     * Stop watching, called on disable
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        closeWatchService();
+        thread.interrupt();
+        thread = null;
+        plugin.debugLog("Stopped watching " + CONFIG_FILE);
+    }
+
+    private void closeWatchService() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException ignored) {
+            // Already closed
+        }
+        watchService = null;
+    }
+
+    @Override
+    public void run() {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!drain(service.take())) {
+                    continue;
+                }
+
+                // Wait until the file has been quiet for the debounce time
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    WatchKey next = service.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (drain(next)) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                    }
+                }
+
+                plugin.getConfigManager().reloadIfChanged(this::report);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Consume the events of a key
+     * @return true if config.yml was among them
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || CONFIG_FILE.equals(String.valueOf(event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void report(List<String> errors) {
+        if (errors.isEmpty()) {
+            plugin.getLogger().info("Reloaded " + CONFIG_FILE + " after it changed on disk");
+            return;
+        }
+
+        plugin.getLogger().warning("Changes to " + CONFIG_FILE + " were not applied, " + errors.size() + " error(s):");
+        for (String error : errors) {
+            plugin.getLogger().warning("- " + error);
+        }
+    }
+}
@@ -1,67 +1,126 @@
 package com.mrsuffix.singleplayersleep.managers;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.world.SleepPhase;
+import com.mrsuffix.singleplayersleep.world.WorldSleepState;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Manages cooldowns for sleep functionality
+ *
+ * Cooldowns are deadlines in world game ticks kept on each world's state, so
+ * checking one is a single comparison. The game time is saved with the world
+ * and never jumps with /time set, so the deadline is also stored in the
+ * world's persistent data and survives restarts.
  */
 public class CooldownManager {
 
     private final SinglePlayerSleep plugin;
-    private final Map<String, Long> worldCooldowns = new HashMap<>();
+    private final NamespacedKey cooldownKey;
 
     public CooldownManager(SinglePlayerSleep plugin) {
         this.plugin = plugin;
+        this.cooldownKey = new NamespacedKey(plugin, "cooldown-end");
+    }
+
+    /**
+     * Restore the saved cooldown of a world, putting it into the cooldown
+     * phase so the orchestrator notices when it ends
+     * @param state World state
+     */
+    public void load(WorldSleepState state) {
+        Long cooldownEnd = state.getWorld().getPersistentDataContainer().get(cooldownKey, PersistentDataType.LONG);
+        if (cooldownEnd != null) {
+            state.setCooldownEnd(cooldownEnd);
+            // Drops it if it expired while the server was down
+            if (isOnCooldown(state) && state.getPhase() == SleepPhase.IDLE) {
+                state.setPhase(SleepPhase.COOLDOWN);
+            }
+        }
     }
 
     /**
      * Set cooldown for a world
-     * @param worldName World name
+     * @param state World state
      */
-    public void setCooldown(String worldName) {
-        long cooldownDuration = plugin.getConfigManager().getCooldownDuration() * 1000; // Convert to milliseconds
-        long cooldownEnd = System.currentTimeMillis() + cooldownDuration;
-        worldCooldowns.put(worldName, cooldownEnd);
+    public void setCooldown(WorldSleepState state) {
+        World world = state.getWorld();
+        long cooldownEnd = world.getGameTime() + state.getSettings().getCooldownDuration() * 20L;
+        state.setCooldownEnd(cooldownEnd);
+        world.getPersistentDataContainer().set(cooldownKey, PersistentDataType.LONG, cooldownEnd);
 
-        plugin.debugLog("Cooldown set for world " + worldName + " until " + cooldownEnd);
+        plugin.debugLog("Cooldown set for world " + state.getWorldName() + " until game tick " + cooldownEnd);
     }
 
     /**
      * Check if a world is on cooldown
-     * @param worldName World name
+     * @param state World state
      * @return true if on cooldown
      */
-    public boolean isOnCooldown(String worldName) {
-        Long cooldownEnd = worldCooldowns.get(worldName);
-        if (cooldownEnd == null) {
+    public boolean isOnCooldown(WorldSleepState state) {
+        long cooldownEnd = state.getCooldownEnd();
+        if (cooldownEnd < 0L) {
             return false;
         }
 
-        if (System.currentTimeMillis() >= cooldownEnd) {
-            worldCooldowns.remove(worldName);
-            plugin.debugLog("Cooldown expired for world " + worldName);
+        if (state.getWorld().getGameTime() >= cooldownEnd) {
+            clear(state);
+            plugin.debugLog("Cooldown expired for world " + state.getWorldName());
             return false;
         }
 
         return true;
     }
 
+    /**
+     * Get remaining cooldown time in ticks
+     * @param state World state
+     * @return Remaining ticks, 0 if not on cooldown
+     */
+    public long getRemainingTicks(WorldSleepState state) {
+        if (!isOnCooldown(state)) {
+            return 0;
+        }
+
+        return state.getCooldownEnd() - state.getWorld().getGameTime();
+    }
+
+    /**
+     * Check if a player still has to be told about the running cooldown.
+     * Each player is told once per cooldown window.
+     * @param state World state
+     * @param player Player trying to sleep
+     * @return true the first time a player asks during this window
+     */
+    public boolean shouldNotify(WorldSleepState state, Player player) {
+        return state.markCooldownNotified(player.getUniqueId());
+    }
+
+    /**
+     * Check if a world is on cooldown
+     * @param worldName World name
+     * @return true if on cooldown
+     */
+    public boolean isOnCooldown(String worldName) {
+        WorldSleepState state = getState(worldName);
+        return state != null && isOnCooldown(state);
+    }
+
     /**
      * Get remaining cooldown time in milliseconds
      * @param worldName World name
      * @return Remaining time in milliseconds, 0 if not on cooldown
      */
     public long getRemainingCooldown(String worldName) {
-        Long cooldownEnd = worldCooldowns.get(worldName);
-        if (cooldownEnd == null) {
-            return 0;
-        }
-
-        long remaining = cooldownEnd - System.currentTimeMillis();
-        return Math.max(0, remaining);
+        WorldSleepState state = getState(worldName);
+        return state != null ? getRemainingTicks(state) * 50L : 0;
     }
 
     /**
@@ -69,7 +128,12 @@ public class CooldownManager {
      * @param worldName World name
      */
     public void clearCooldown(String worldName) {
-        worldCooldowns.remove(worldName);
+        WorldSleepState state = getState(worldName);
+        if (state != null) {
+            clear(state);
+            // Players already in bed are waiting for the cooldown to end
+            plugin.getWorldStateManager().markDirty(state);
+        }
         plugin.debugLog("Cooldown cleared for world " + worldName);
     }
 
@@ -77,20 +141,38 @@ public class CooldownManager {
      * Clear all cooldowns
      */
     public void clearAllCooldowns() {
-        worldCooldowns.clear();
+        for (WorldSleepState state : plugin.getWorldStateManager().getStates()) {
+            clear(state);
+            plugin.getWorldStateManager().markDirty(state);
+        }
         plugin.debugLog("All cooldowns cleared");
     }
 
     /**
      * Get all worlds currently on cooldown
-     * @return Map of world names to cooldown end times
+     * @return Map of world names to remaining cooldown in milliseconds
      */
     public Map<String, Long> getAllCooldowns() {
-        // Remove expired cooldowns before returning
-        worldCooldowns.entrySet().removeIf(entry ->
-                System.currentTimeMillis() >= entry.getValue());
+        Map<String, Long> cooldowns = new HashMap<>();
+        for (WorldSleepState state : plugin.getWorldStateManager().getStates()) {
+            long remaining = getRemainingTicks(state);
+            if (remaining > 0) {
+                cooldowns.put(state.getWorldName(), remaining * 50L);
+            }
+        }
+        return cooldowns;
+    }
 
-        return new HashMap<>(worldCooldowns);
+    private void clear(WorldSleepState state) {
+        state.setCooldownEnd(-1L);
+        PersistentDataContainer data = state.getWorld().getPersistentDataContainer();
+        if (data.has(cooldownKey)) {
+            data.remove(cooldownKey);
+        }
     }
-}
 
+    private WorldSleepState getState(String worldName) {
+        World world = plugin.getServer().getWorld(worldName);
+        return world != null ? plugin.getWorldStateManager().getState(world.getUID()) : null;
+    }
+}
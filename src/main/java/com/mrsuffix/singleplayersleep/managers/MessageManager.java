@@ -0,0 +1,152 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.utils.ComponentTemplate;
+import com.mrsuffix.singleplayersleep.utils.MessageUtil;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sends config messages in each player's language
+ *
+ * Translations live in messages_&lt;locale&gt;.yml files in the plugin folder,
+ * e.g. messages_de_de.yml or messages_de.yml. All bundles are read and
+ * compiled when the messages are loaded, so sending only looks them up; keys
+ * a bundle does not define fall back to the messages in config.yml. Sending
+ * to many players renders each message once per bundle, not once per player.
+ */
+public class MessageManager {
+
+    private static final String FILE_PREFIX = "messages_";
+    private static final String FILE_SUFFIX = ".yml";
+
+    private final SinglePlayerSleep plugin;
+    private final MessageBundle defaultBundle;
+
+    // Locale tag of each messages file -> compiled bundle, replaced as a whole on load
+    private volatile Map<String, MessageBundle> bundles = Collections.emptyMap();
+
+    public MessageManager(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+        this.defaultBundle = new MessageBundle(Collections.emptyMap());
+    }
+
+    /**
+     * Read and compile all message bundles and use them, called on startup
+     */
+    public void load() {
+        setBundles(readBundles());
+    }
+
+    /**
+     * Read and compile all message bundles without using them yet.
+     * Does file I/O, reloads call it off the main thread.
+     * @return Bundles by locale tag
+     */
+    Map<String, MessageBundle> readBundles() {
+        Map<String, MessageBundle> found = new HashMap<>();
+        File[] files = plugin.getDataFolder().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName().toLowerCase(Locale.ROOT);
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    String tag = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length());
+                    found.put(tag, loadBundle(file, tag));
+                }
+            }
+        }
+
+        plugin.debugLog("Loaded " + found.size() + " message bundles");
+        return Collections.unmodifiableMap(found);
+    }
+
+    /**
+     * Use bundles read by {@link #readBundles()}
+     * @param loaded Bundles by locale tag
+     */
+    void setBundles(Map<String, MessageBundle> loaded) {
+        bundles = loaded;
+    }
+
+    /**
+     * Send a message to an audience, rendering it once per bundle
+     * @param audience Players (or console) to send to
+     * @param key Message key
+     * @param values Slot values as in MessageUtil.MESSAGE_PLACEHOLDERS
+     */
+    public void send(Audience audience, String key, String... values) {
+        Map<MessageBundle, Component> rendered = new IdentityHashMap<>();
+        audience.forEachAudience(member -> {
+            MessageBundle bundle = member instanceof Player ? getBundle(((Player) member).locale()) : defaultBundle;
+            Component message = rendered.get(bundle);
+            if (message == null) {
+                message = bundle.getTemplate(key).render(values);
+                rendered.put(bundle, message);
+            }
+            member.sendMessage(message);
+        });
+    }
+
+    /**
+     * Get the bundle of a locale
+     * @param locale Player locale
+     * @return Bundle, the default one if there is no translation
+     */
+    private MessageBundle getBundle(Locale locale) {
+        if (locale == null) {
+            return defaultBundle;
+        }
+
+        Map<String, MessageBundle> loaded = bundles;
+        String tag = locale.toString().toLowerCase(Locale.ROOT);
+        MessageBundle bundle = loaded.get(tag);
+        if (bundle == null && tag.indexOf('_') > 0) {
+            // Country variants without their own file share the language bundle
+            bundle = loaded.get(tag.substring(0, tag.indexOf('_')));
+        }
+        return bundle != null ? bundle : defaultBundle;
+    }
+
+    private MessageBundle loadBundle(File file, String tag) {
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        ConfigurationSection section = yaml.isConfigurationSection("messages")
+                ? yaml.getConfigurationSection("messages") : yaml;
+
+        Map<String, ComponentTemplate> templates = new HashMap<>();
+        for (String key : section.getKeys(false)) {
+            String message = section.getString(key);
+            if (message != null) {
+                templates.put(key, ComponentTemplate.compile(message, MessageUtil.MESSAGE_PLACEHOLDERS));
+            }
+        }
+
+        plugin.debugLog("Compiled message bundle " + tag + " with " + templates.size() + " messages");
+        return new MessageBundle(templates);
+    }
+
+    /**
+     * Compiled messages of one language
+     */
+    final class MessageBundle {
+        private final Map<String, ComponentTemplate> templates;
+
+        private MessageBundle(Map<String, ComponentTemplate> templates) {
+            this.templates = templates;
+        }
+
+        private ComponentTemplate getTemplate(String key) {
+            ComponentTemplate template = templates.get(key);
+            return template != null ? template : plugin.getConfigManager().getMessageTemplate(key);
+        }
+    }
+}
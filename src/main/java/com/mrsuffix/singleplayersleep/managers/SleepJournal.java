@@ -0,0 +1,349 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of sleep events
+ *
+ * Every event is a fixed-size 64 byte record, appended to the current
+ * segment file through a reused buffer, so an append does not allocate.
+ * Segments roll over after a fixed number of records. StatisticsManager
+ * replays the records written after its last checkpoint on startup and
+ * deletes the segments a checkpoint fully covers.
+ *
+ * Record layout (big endian):
+ * <pre>
+ *  0  long  server tick
+ *  8  long  wall time (ms)
+ * 16  long  world UID (most significant bits)
+ * 24  long  world UID (least significant bits)
+ * 32  long  player UUID (most significant bits), 0 if none
+ * 40  long  player UUID (least significant bits), 0 if none
+ * 48  byte  event type
+ * 49  byte  reserved
+ * 50  short participants
+ * 52  int   duration (ticks)
+ * 56  int   reserved
+ * 60  int   CRC32 of bytes 0-59
+ * </pre>
+ */
+public class SleepJournal {
+
+    public static final byte TYPE_SLEEP = 1;
+    public static final byte TYPE_NIGHT_SKIP = 2;
+    public static final byte TYPE_MANUAL_SKIP = 3;
+
+    private static final int RECORD_SIZE = 64;
+    private static final int CRC_OFFSET = 60;
+    private static final int SEGMENT_RECORDS = 16384; // 1 MiB segments
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final SinglePlayerSleep plugin;
+    private final File folder;
+
+    // Reused for every append, only touched on the global region
+    private final byte[] bytes = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(bytes);
+    private final CRC32 crc = new CRC32();
+
+    // Guards replacing and closing the channel against a concurrent force()
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private int segmentRecords;
+
+    public SleepJournal(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "journal");
+    }
+
+    /**
+     * Replay every record from a position on and open the journal for appending
+     * after the last valid record. A torn or corrupt record ends the replay.
+     * @param fromSegment Segment of the first record to replay
+     * @param fromRecord Index of the first record to replay in that segment
+     * @param handler Receives each replayed record
+     * @return Number of replayed records
+     */
+    public int open(long fromSegment, int fromRecord, RecordHandler handler) {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            plugin.getLogger().severe("Could not create journal folder " + folder);
+            return 0;
+        }
+
+        long[] segments = listSegments();
+        long lastSegment = segments.length > 0 ? segments[segments.length - 1] : fromSegment;
+        int lastRecords = 0;
+        int replayed = 0;
+
+        for (long index : segments) {
+            if (index < fromSegment) {
+                continue; // Covered by the checkpoint, compacted below
+            }
+
+            int start = index == fromSegment ? fromRecord : 0;
+            int valid = replaySegment(index, start, handler);
+            replayed += Math.max(0, valid - start);
+            if (index == lastSegment) {
+                lastRecords = valid;
+            } else if (valid < SEGMENT_RECORDS) {
+                plugin.getLogger().warning("Journal segment " + index + " ends with a corrupt record after "
+                        + valid + " records");
+            }
+        }
+
+        compact(fromSegment);
+
+        long target = Math.max(lastSegment, fromSegment);
+        int records = lastSegment >= fromSegment ? lastRecords : 0;
+        if (records >= SEGMENT_RECORDS || (target == fromSegment && records < fromRecord)) {
+            // Segment is full, or shorter than the checkpoint says; appending to
+            // it would put records where the next replay does not look
+            target++;
+            records = 0;
+        }
+        openSegment(target, records);
+        return replayed;
+    }
+
+    /**
+     * Replay a segment from a record index on
+     * @return Number of valid records at the start of the segment
+     */
+    private int replaySegment(long index, int start, RecordHandler handler) {
+        try (FileChannel in = FileChannel.open(segmentFile(index).toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            CRC32 check = new CRC32();
+            int records = 0;
+            while (records < SEGMENT_RECORDS) {
+                buffer.clear();
+                while (buffer.hasRemaining() && in.read(buffer) > 0) {
+                    // Keep reading until the record is complete or the file ends
+                }
+                if (buffer.hasRemaining()) {
+                    break; // Torn write at the end
+                }
+
+                check.reset();
+                check.update(buffer.array(), 0, CRC_OFFSET);
+                if ((int) check.getValue() != buffer.getInt(CRC_OFFSET)) {
+                    break;
+                }
+
+                if (records >= start) {
+                    handler.handle(buffer.getLong(0), buffer.getLong(8),
+                            new UUID(buffer.getLong(16), buffer.getLong(24)),
+                            new UUID(buffer.getLong(32), buffer.getLong(40)),
+                            buffer.get(48), buffer.getShort(50), buffer.getInt(52));
+                }
+                records++;
+            }
+            return records;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read journal segment " + index + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Append a record. Must be called on the global region.
+     * @param tick Server tick
+     * @param worldId World UID
+     * @param playerId Player UUID, null if none
+     * @param type Event type
+     * @param participants Players involved, e.g. sleeping players at a night skip
+     * @param duration Duration in ticks, e.g. of the countdown
+     */
+    public void append(long tick, UUID worldId, UUID playerId, byte type, int participants, int duration) {
+        if (channel == null) {
+            return;
+        }
+
+        record.clear();
+        record.putLong(tick);
+        record.putLong(System.currentTimeMillis());
+        record.putLong(worldId.getMostSignificantBits());
+        record.putLong(worldId.getLeastSignificantBits());
+        record.putLong(playerId != null ? playerId.getMostSignificantBits() : 0L);
+        record.putLong(playerId != null ? playerId.getLeastSignificantBits() : 0L);
+        record.put(type);
+        record.put((byte) 0);
+        record.putShort((short) Math.min(participants, Short.MAX_VALUE));
+        record.putInt(duration);
+        record.putInt(0);
+        crc.reset();
+        crc.update(bytes, 0, CRC_OFFSET);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (++segmentRecords >= SEGMENT_RECORDS) {
+                openSegment(segment + 1, 0);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not append to sleep journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the segment records are appended to
+     * @return Segment index
+     */
+    public long getSegment() {
+        return segment;
+    }
+
+    /**
+     * Get the number of records in the current segment
+     * @return Record index the next append goes to
+     */
+    public int getSegmentRecords() {
+        return segmentRecords;
+    }
+
+    /**
+     * Flush appended records to disk, may be called from any thread
+     */
+    public void force() {
+        synchronized (channelLock) {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (ClosedChannelException e) {
+                // Closed on shutdown, close() already forced it
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not flush sleep journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Delete the segments before a checkpoint, their records are part of the
+     * aggregate statistics
+     * @param beforeSegment First segment still needed
+     */
+    public void compact(long beforeSegment) {
+        int deleted = 0;
+        for (long index : listSegments()) {
+            if (index < beforeSegment && segmentFile(index).delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            plugin.debugLog("Compacted " + deleted + " journal segments into the statistics");
+        }
+    }
+
+    /**
+     * Close the current segment
+     */
+    public void close() {
+        synchronized (channelLock) {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not close sleep journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private void openSegment(long index, int records) {
+        FileChannel previous = channel;
+        if (previous != null) {
+            // The tail of the old segment is on disk before any record goes
+            // to the next one, so a checkpoint past it never points at lost records
+            try {
+                previous.force(false);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not flush journal segment " + segment + ": " + e.getMessage());
+            }
+        }
+
+        FileChannel next = null;
+        try {
+            next = FileChannel.open(segmentFile(index).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Drop a torn or corrupt tail, appends continue after the last valid record
+            next.truncate((long) records * RECORD_SIZE);
+            next.position((long) records * RECORD_SIZE);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open journal segment " + index + ": " + e.getMessage());
+            closeChannel(next);
+            next = null;
+        }
+
+        synchronized (channelLock) {
+            channel = next;
+            if (next != null) {
+                segment = index;
+                segmentRecords = records;
+            }
+            closeChannel(previous);
+        }
+    }
+
+    private void closeChannel(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close journal segment: " + e.getMessage());
+        }
+    }
+
+    private long[] listSegments() {
+        String[] names = folder.list((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (names == null) {
+            return new long[0];
+        }
+
+        long[] segments = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            try {
+                segments[count] = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()), 16);
+                count++;
+            } catch (NumberFormatException ignored) {
+                // Not a segment
+            }
+        }
+        segments = Arrays.copyOf(segments, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private File segmentFile(long index) {
+        return new File(folder, String.format("%016x", index) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Receives replayed records
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(long tick, long wallTime, UUID worldId, UUID playerId, byte type, int participants, int duration);
+    }
+}
@@ -0,0 +1,370 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Time-bucketed sleep statistics of one world
+ *
+ * Events are counted in a ring of hourly buckets covering the last 24 hours.
+ * When an hour leaves the ring it is rolled up into a ring of daily buckets
+ * covering the last 30 days, and days older than that are dropped; lifetime
+ * totals are kept separately. Running sums of the rings are updated with
+ * every event and roll-up, so a query reads a few sums and never walks the
+ * buckets. Buckets follow the server's local time.
+ *
+ * Each bucket holds the night skips, manual skips, summed countdown length
+ * and summed sleeping players. Owned by the global region.
+ */
+public class SleepRollup {
+
+    private static final int HOURS = 24;
+    private static final int DAYS = 30;
+    private static final int WEEK = 7;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private static final int SKIPS = 0;
+    private static final int MANUAL_SKIPS = 1;
+    private static final int SKIP_TICKS = 2;
+    private static final int PARTICIPANTS = 3;
+    private static final int FIELDS = 4;
+
+    private final long[] hours = new long[HOURS * FIELDS];
+    private final long[] days = new long[DAYS * FIELDS];
+    private final long[] hourSum = new long[FIELDS];
+    private final long[] weekSum = new long[FIELDS];
+    private final long[] monthSum = new long[FIELDS];
+    private final long[] total = new long[FIELDS];
+    private long currentHour;
+
+    /**
+     * Create empty statistics
+     * @param hour Current hour, see {@link #hourOf(long)}
+     */
+    public SleepRollup(long hour) {
+        this.currentHour = hour;
+    }
+
+    /**
+     * Get the local hour a wall clock time falls into
+     * @param millis Wall clock time in milliseconds
+     * @return Hours since the epoch in the server's time zone
+     */
+    public static long hourOf(long millis) {
+        return Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), MILLIS_PER_HOUR);
+    }
+
+    /**
+     * Count a night skipped by sleeping players
+     * @param millis Wall clock time of the skip
+     * @param participants Players sleeping at the skip
+     * @param duration Countdown length in ticks
+     */
+    public void recordSkip(long millis, int participants, int duration) {
+        record(hourOf(millis), 1L, 0L, duration, participants);
+    }
+
+    /**
+     * Count a night skipped with /sleep skip
+     * @param millis Wall clock time of the skip
+     */
+    public void recordManualSkip(long millis) {
+        record(hourOf(millis), 0L, 1L, 0L, 0L);
+    }
+
+    /**
+     * Get the statistics of a time range
+     * @param range Range
+     * @param hour Current hour, see {@link #hourOf(long)}
+     * @return Totals of the range
+     */
+    public Totals getTotals(Range range, long hour) {
+        advance(hour);
+
+        long[] sums = new long[FIELDS];
+        switch (range) {
+            case HOUR:
+                System.arraycopy(hours, hourSlot(currentHour), sums, 0, FIELDS);
+                break;
+            case DAY:
+                add(sums, 0, hourSum);
+                break;
+            case WEEK:
+                add(sums, 0, hourSum);
+                add(sums, 0, weekSum);
+                break;
+            case MONTH:
+                add(sums, 0, hourSum);
+                add(sums, 0, monthSum);
+                break;
+            default:
+                add(sums, 0, total);
+                break;
+        }
+        return new Totals(sums);
+    }
+
+    /**
+     * Copy these statistics, e.g. to write them on another thread
+     * @return Copy
+     */
+    public SleepRollup copy() {
+        SleepRollup copy = new SleepRollup(currentHour);
+        System.arraycopy(hours, 0, copy.hours, 0, hours.length);
+        System.arraycopy(days, 0, copy.days, 0, days.length);
+        System.arraycopy(hourSum, 0, copy.hourSum, 0, FIELDS);
+        System.arraycopy(weekSum, 0, copy.weekSum, 0, FIELDS);
+        System.arraycopy(monthSum, 0, copy.monthSum, 0, FIELDS);
+        System.arraycopy(total, 0, copy.total, 0, FIELDS);
+        return copy;
+    }
+
+    /**
+     * Write these statistics to a config section
+     * @param section Section to write to
+     */
+    public void save(ConfigurationSection section) {
+        section.set("hour", currentHour);
+        section.set("hours", toList(hours));
+        section.set("days", toList(days));
+        section.set("total", toList(total));
+    }
+
+    /**
+     * Read statistics written by {@link #save(ConfigurationSection)}
+     * @param section Section to read from
+     * @param hour Current hour, see {@link #hourOf(long)}
+     * @return Statistics, advanced to the current hour
+     */
+    public static SleepRollup load(ConfigurationSection section, long hour) {
+        SleepRollup rollup = new SleepRollup(section.getLong("hour", hour));
+        fromList(section.getLongList("hours"), rollup.hours);
+        fromList(section.getLongList("days"), rollup.days);
+        fromList(section.getLongList("total"), rollup.total);
+
+        long day = currentDay(rollup.currentHour);
+        for (int i = 0; i < HOURS; i++) {
+            add(rollup.hourSum, i * FIELDS, rollup.hours);
+        }
+        for (int i = 0; i < DAYS; i++) {
+            add(rollup.monthSum, daySlot(day - i), rollup.days);
+            if (i < WEEK) {
+                add(rollup.weekSum, daySlot(day - i), rollup.days);
+            }
+        }
+
+        rollup.advance(hour);
+        return rollup;
+    }
+
+    private void record(long hour, long skips, long manualSkips, long skipTicks, long participants) {
+        total[SKIPS] += skips;
+        total[MANUAL_SKIPS] += manualSkips;
+        total[SKIP_TICKS] += skipTicks;
+        total[PARTICIPANTS] += participants;
+
+        advance(hour);
+        if (hour > currentHour - HOURS) {
+            int slot = hourSlot(hour);
+            hours[slot + SKIPS] += skips;
+            hours[slot + MANUAL_SKIPS] += manualSkips;
+            hours[slot + SKIP_TICKS] += skipTicks;
+            hours[slot + PARTICIPANTS] += participants;
+            hourSum[SKIPS] += skips;
+            hourSum[MANUAL_SKIPS] += manualSkips;
+            hourSum[SKIP_TICKS] += skipTicks;
+            hourSum[PARTICIPANTS] += participants;
+        } else {
+            // Older than the hour ring, e.g. replayed from the journal
+            long[] values = {skips, manualSkips, skipTicks, participants};
+            addToDay(Math.floorDiv(hour, HOURS), values, 0);
+        }
+    }
+
+    /**
+     * Move the rings forward to an hour, rolling the hours that leave the
+     * hour ring into their days and dropping the days that leave the day ring.
+     * Takes at most one pass over each ring, however long the gap.
+     */
+    private void advance(long hour) {
+        if (hour <= currentHour) {
+            return;
+        }
+
+        long day = currentDay(currentHour);
+        long newDay = currentDay(hour);
+        if (newDay > day) {
+            for (long d = day - WEEK + 1; d <= Math.min(day, newDay - WEEK); d++) {
+                subtract(weekSum, daySlot(d), days);
+            }
+            for (long d = day - DAYS + 1; d <= Math.min(day, newDay - DAYS); d++) {
+                int slot = daySlot(d);
+                subtract(monthSum, slot, days);
+                Arrays.fill(days, slot, slot + FIELDS, 0L);
+            }
+        }
+
+        long oldest = currentHour - HOURS + 1;
+        currentHour = hour;
+        for (long h = oldest; h <= Math.min(hour - HOURS, oldest + HOURS - 1); h++) {
+            int slot = hourSlot(h);
+            subtract(hourSum, slot, hours);
+            addToDay(Math.floorDiv(h, HOURS), hours, slot);
+            Arrays.fill(hours, slot, slot + FIELDS, 0L);
+        }
+    }
+
+    private void addToDay(long day, long[] values, int offset) {
+        long today = currentDay(currentHour);
+        if (day <= today - DAYS) {
+            return; // Only part of the lifetime totals
+        }
+
+        int slot = daySlot(day);
+        for (int i = 0; i < FIELDS; i++) {
+            days[slot + i] += values[offset + i];
+            monthSum[i] += values[offset + i];
+            if (day > today - WEEK) {
+                weekSum[i] += values[offset + i];
+            }
+        }
+    }
+
+    private static long currentDay(long hour) {
+        return Math.floorDiv(hour, HOURS);
+    }
+
+    private static int hourSlot(long hour) {
+        return (int) Math.floorMod(hour, (long) HOURS) * FIELDS;
+    }
+
+    private static int daySlot(long day) {
+        return (int) Math.floorMod(day, (long) DAYS) * FIELDS;
+    }
+
+    private static void add(long[] sums, int offset, long[] values) {
+        for (int i = 0; i < FIELDS; i++) {
+            sums[i] += values[offset + i];
+        }
+    }
+
+    private static void subtract(long[] sums, int offset, long[] values) {
+        for (int i = 0; i < FIELDS; i++) {
+            sums[i] -= values[offset + i];
+        }
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static void fromList(List<Long> list, long[] values) {
+        for (int i = 0; i < Math.min(list.size(), values.length); i++) {
+            values[i] = list.get(i);
+        }
+    }
+
+    /**
+     * Time range of a statistics query
+     */
+    public enum Range {
+        HOUR("this hour"),
+        DAY("last 24 hours"),
+        WEEK("last 7 days"),
+        MONTH("last 30 days"),
+        ALL("all time");
+
+        private final String description;
+
+        Range(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Get the description shown with query results
+         * @return Description
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Parse a range from a command argument
+         * @param value Range name
+         * @return Range, or null if unknown
+         */
+        public static Range fromString(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Statistics of one time range
+     */
+    public static final class Totals {
+        private final long skips;
+        private final long manualSkips;
+        private final long skipTicks;
+        private final long participants;
+
+        private Totals(long[] sums) {
+            this.skips = sums[SKIPS];
+            this.manualSkips = sums[MANUAL_SKIPS];
+            this.skipTicks = sums[SKIP_TICKS];
+            this.participants = sums[PARTICIPANTS];
+        }
+
+        /**
+         * Create totals of a world without statistics
+         * @return Empty totals
+         */
+        public static Totals empty() {
+            return new Totals(new long[FIELDS]);
+        }
+
+        /**
+         * Get the number of nights skipped by sleeping players
+         * @return Night skips
+         */
+        public long getSkips() {
+            return skips;
+        }
+
+        /**
+         * Get the number of nights skipped with /sleep skip
+         * @return Manual skips
+         */
+        public long getManualSkips() {
+            return manualSkips;
+        }
+
+        /**
+         * Get the average countdown length of a night skip
+         * @return Average ticks, 0 if there were no skips
+         */
+        public long getAverageSkipTicks() {
+            return skips > 0 ? Math.round((double) skipTicks / skips) : 0L;
+        }
+
+        /**
+         * Get the average number of players sleeping at a night skip
+         * @return Average players, 0 if there were no skips
+         */
+        public double getAverageParticipants() {
+            return skips > 0 ? (double) participants / skips : 0.0;
+        }
+    }
+}
@@ -1,30 +1,93 @@
 package com.mrsuffix.singleplayersleep.managers;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.utils.RankedSlotList;
+import com.mrsuffix.singleplayersleep.utils.UUIDSlotIndex;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Manages plugin statistics
+ *
+ * Statistics are written behind: every save interval the counters are copied
+ * on the global region and the copy is written on a background thread. The
+ * file is written to a temporary file first and renamed into place, so a
+ * crash leaves either the previous or the new checkpoint. Checkpoints are
+ * skipped when nothing changed since the last one.
+ *
+ * Every event is also appended to the SleepJournal. A checkpoint stores the
+ * journal position it includes; the records after it are replayed on
+ * startup, so a crash between checkpoints loses nothing, and the segments
+ * before it are compacted away.
+ *
+ * Player statistics are keyed by UUID in a primitive slot table, so renamed
+ * players keep their history. Names are only kept for display and refreshed
+ * on join. Counts of older files, which were keyed by name, are moved to the
+ * player's UUID on load if the server knows the name, otherwise on their
+ * next join.
+ *
+ * Slots are ranked by sleep count in an indexed skip list that is updated
+ * with every sleep, so leaderboard pages and ranks never sort the players.
+ *
+ * Night skips are also counted per world in hourly and daily buckets, see
+ * SleepRollup.
  */
 public class StatisticsManager {
 
+    private static final String HEADER = "# SinglePlayerSleep Statistics\n"
+            + "# Written by the plugin, only edit this file while the server is stopped\n\n";
+    private static final int INITIAL_SLOTS = 64;
+
     private final SinglePlayerSleep plugin;
+    private final SleepJournal journal;
     private File statisticsFile;
-    private FileConfiguration statisticsConfig;
+    private String statisticsVersion;
 
     private long totalSleepCount = 0;
     private long manualSkips = 0;
-    private final Map<String, Integer> playerSleepCounts = new HashMap<>();
+
+    // Player table, owned by the global region
+    private final UUIDSlotIndex playerSlots = new UUIDSlotIndex(INITIAL_SLOTS);
+    private UUID[] playerIds = new UUID[INITIAL_SLOTS];
+    private String[] playerNames = new String[INITIAL_SLOTS];
+    private int[] sleepCounts = new int[INITIAL_SLOTS];
+    private int playerCount;
+
+    // Slots ranked by sleep count
+    private final RankedSlotList leaderboard = new RankedSlotList(INITIAL_SLOTS);
+
+    // Slots of name-keyed counts of older statistics files not yet moved to a
+    // UUID; they have a name but no id
+    private final Map<String, Integer> legacySlots = new HashMap<>();
+
+    // Time-bucketed statistics by world UID
+    private final Map<UUID, SleepRollup> worldRollups = new HashMap<>();
+
+    // Bumped on every change; the checkpoint writer remembers the last one written
+    private long changes;
+    private long checkpointed;
+    private long writtenChanges = -1;
+    private long secondsSinceCheckpoint;
+    private final Object writeLock = new Object();
 
     public StatisticsManager(SinglePlayerSleep plugin) {
         this.plugin = plugin;
         this.statisticsFile = new File(plugin.getDataFolder(), "statistics.yml");
+        this.journal = new SleepJournal(plugin);
     }
 
     /**
@@ -35,52 +98,288 @@ public class StatisticsManager {
             plugin.saveResource("statistics.yml", false);
         }
 
-        statisticsConfig = YamlConfiguration.loadConfiguration(statisticsFile);
+        FileConfiguration statisticsConfig = YamlConfiguration.loadConfiguration(statisticsFile);
 
         totalSleepCount = statisticsConfig.getLong("total-sleep-count", 0);
         manualSkips = statisticsConfig.getLong("manual-skips", 0);
+        statisticsVersion = statisticsConfig.getString("version", plugin.getDescription().getVersion());
+
+        ConfigurationSection players = statisticsConfig.getConfigurationSection("players");
+        if (players != null) {
+            for (String key : players.getKeys(false)) {
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(key);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Ignoring statistics of invalid player UUID " + key);
+                    continue;
+                }
 
-        if (statisticsConfig.contains("player-sleep-counts")) {
-            var section = statisticsConfig.getConfigurationSection("player-sleep-counts");
-            if (section != null) {
-                for (String player : section.getKeys(false)) {
-                    playerSleepCounts.put(player, statisticsConfig.getInt("player-sleep-counts." + player));
+                int slot = slotOf(playerId);
+                playerNames[slot] = players.getString(key + ".name");
+                addSleeps(slot, players.getInt(key + ".sleeps"));
+            }
+        }
+
+        loadLegacySleepCounts(statisticsConfig.getConfigurationSection("player-sleep-counts"));
+
+        ConfigurationSection worlds = statisticsConfig.getConfigurationSection("worlds");
+        if (worlds != null) {
+            long hour = SleepRollup.hourOf(System.currentTimeMillis());
+            for (String key : worlds.getKeys(false)) {
+                ConfigurationSection section = worlds.getConfigurationSection(key);
+                try {
+                    if (section != null) {
+                        worldRollups.put(UUID.fromString(key), SleepRollup.load(section, hour));
+                    }
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Ignoring statistics of invalid world UID " + key);
                 }
             }
         }
 
+        // Apply the events recorded after the last checkpoint
+        int replayed = journal.open(statisticsConfig.getLong("journal.segment", 0L),
+                statisticsConfig.getInt("journal.record", 0), this::replay);
+        if (replayed > 0) {
+            changes++;
+            plugin.getLogger().info("Replayed " + replayed + " sleep events from the journal");
+        }
+
         plugin.debugLog("Statistics loaded - Total sleeps: " + totalSleepCount + ", Manual skips: " + manualSkips);
     }
 
+    private void replay(long tick, long wallTime, UUID worldId, UUID playerId, byte type, int participants, int duration) {
+        switch (type) {
+            case SleepJournal.TYPE_SLEEP:
+                int slot = slotOf(playerId);
+                addSleeps(slot, 1);
+                if (playerNames[slot] == null) {
+                    playerNames[slot] = Bukkit.getOfflinePlayer(playerId).getName();
+                }
+                break;
+            case SleepJournal.TYPE_NIGHT_SKIP:
+                totalSleepCount++;
+                rollupOf(worldId).recordSkip(wallTime, participants, duration);
+                break;
+            case SleepJournal.TYPE_MANUAL_SKIP:
+                manualSkips++;
+                rollupOf(worldId).recordManualSkip(wallTime);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Move name-keyed counts to the UUIDs the server knows for those names,
+     * keeping the others until the player joins
+     * @param section player-sleep-counts section of an older statistics file
+     */
+    private void loadLegacySleepCounts(ConfigurationSection section) {
+        if (section == null) {
+            return;
+        }
+
+        int migrated = 0;
+        for (String name : section.getKeys(false)) {
+            int count = section.getInt(name);
+            OfflinePlayer player = Bukkit.getOfflinePlayerIfCached(name);
+            if (player == null) {
+                int slot = newSlot();
+                playerNames[slot] = name;
+                legacySlots.put(name, slot);
+                addSleeps(slot, count);
+                continue;
+            }
+
+            int slot = slotOf(player.getUniqueId());
+            if (playerNames[slot] == null) {
+                playerNames[slot] = player.getName() != null ? player.getName() : name;
+            }
+            addSleeps(slot, count);
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            changes++;
+            plugin.getLogger().info("Moved the statistics of " + migrated + " players from names to UUIDs"
+                    + (legacySlots.isEmpty() ? "" : ", " + legacySlots.size() + " more on their next join"));
+        }
+    }
+
+    /**
+     * Refresh the display name of a joining player and move statistics kept
+     * under that name to their UUID. Must be called on the global region.
+     * @param player Joining player
+     */
+    public void updatePlayer(Player player) {
+        String name = player.getName();
+        int slot = playerSlots.get(player.getUniqueId());
+
+        Integer legacySlot = legacySlots.isEmpty() ? null : legacySlots.remove(name);
+        if (legacySlot != null) {
+            // The legacy slot stays unused until the next restart
+            int count = sleepCounts[legacySlot];
+            sleepCounts[legacySlot] = 0;
+            playerNames[legacySlot] = null;
+            leaderboard.remove(legacySlot);
+
+            slot = slotOf(player.getUniqueId());
+            addSleeps(slot, count);
+            changes++;
+            plugin.debugLog("Moved the statistics of " + name + " to " + player.getUniqueId());
+        }
+
+        if (slot >= 0 && !name.equals(playerNames[slot])) {
+            playerNames[slot] = name;
+            changes++;
+        }
+    }
+
+    /**
+     * Start writing checkpoints in the background
+     */
+    public void startCheckpoints() {
+        plugin.getTaskScheduler().runGlobalTimer(task -> {
+            if (++secondsSinceCheckpoint >= plugin.getConfigManager().getStatisticsSaveInterval()) {
+                secondsSinceCheckpoint = 0;
+                checkpoint();
+            }
+        }, 20L, 20L);
+    }
+
+    /**
+     * Copy the statistics and write the copy on a background thread,
+     * if anything changed since the last checkpoint
+     */
+    public void checkpoint() {
+        if (changes == checkpointed) {
+            return;
+        }
+
+        Checkpoint checkpoint = takeCheckpoint();
+        plugin.getTaskScheduler().runAsync(() -> write(checkpoint));
+    }
+
     /**
-     * Save statistics to file
+     * Save statistics to file right away and close the journal, used on shutdown
      */
     public void saveStatistics() {
-        statisticsConfig.set("total-sleep-count", totalSleepCount);
-        statisticsConfig.set("manual-skips", manualSkips);
-        statisticsConfig.set("last-updated", System.currentTimeMillis());
+        if (changes != checkpointed) {
+            write(takeCheckpoint());
+        }
+        journal.close();
+    }
 
-        // Clear existing player data
-        statisticsConfig.set("player-sleep-counts", null);
+    private Checkpoint takeCheckpoint() {
+        checkpointed = changes;
+        return new Checkpoint(changes, totalSleepCount, manualSkips,
+                Arrays.copyOf(playerIds, playerCount), Arrays.copyOf(playerNames, playerCount),
+                Arrays.copyOf(sleepCounts, playerCount), copyRollups(), journal.getSegment(), journal.getSegmentRecords());
+    }
 
-        // Save player sleep counts
-        for (Map.Entry<String, Integer> entry : playerSleepCounts.entrySet()) {
-            statisticsConfig.set("player-sleep-counts." + entry.getKey(), entry.getValue());
+    private Map<UUID, SleepRollup> copyRollups() {
+        Map<UUID, SleepRollup> copies = new HashMap<>();
+        for (Map.Entry<UUID, SleepRollup> entry : worldRollups.entrySet()) {
+            copies.put(entry.getKey(), entry.getValue().copy());
         }
+        return copies;
+    }
+
+    /**
+     * Serialize a checkpoint into a temporary file and rename it over the
+     * statistics file. Older checkpoints than the last written one are dropped.
+     */
+    private void write(Checkpoint checkpoint) {
+        synchronized (writeLock) {
+            if (checkpoint.changes <= writtenChanges) {
+                return;
+            }
+            journal.force();
+
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("total-sleep-count", checkpoint.totalSleepCount);
+            yaml.set("manual-skips", checkpoint.manualSkips);
+            for (int slot = 0; slot < checkpoint.playerIds.length; slot++) {
+                if (checkpoint.playerIds[slot] != null) {
+                    String path = "players." + checkpoint.playerIds[slot];
+                    yaml.set(path + ".name", checkpoint.playerNames[slot]);
+                    yaml.set(path + ".sleeps", checkpoint.sleepCounts[slot]);
+                } else if (checkpoint.playerNames[slot] != null) {
+                    // Not moved to a UUID yet
+                    yaml.set("player-sleep-counts." + checkpoint.playerNames[slot], checkpoint.sleepCounts[slot]);
+                }
+            }
+            for (Map.Entry<UUID, SleepRollup> entry : checkpoint.worldRollups.entrySet()) {
+                entry.getValue().save(yaml.createSection("worlds." + entry.getKey()));
+            }
+            yaml.set("journal.segment", checkpoint.journalSegment);
+            yaml.set("journal.record", checkpoint.journalRecord);
+            yaml.set("last-updated", System.currentTimeMillis());
+            yaml.set("version", statisticsVersion);
 
-        try {
-            statisticsConfig.save(statisticsFile);
-            plugin.debugLog("Statistics saved");
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save statistics file: " + e.getMessage());
+            Path target = statisticsFile.toPath();
+            Path temp = target.resolveSibling(statisticsFile.getName() + ".tmp");
+            try {
+                Files.write(temp, (HEADER + yaml.saveToString()).getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                writtenChanges = checkpoint.changes;
+                plugin.debugLog("Statistics saved");
+                journal.compact(checkpoint.journalSegment);
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not save statistics file: " + e.getMessage());
+            }
         }
     }
 
+    /**
+     * Record a player that slept through a night skip
+     * @param player Sleeping player
+     * @param world World of the night skip
+     * @param participants Players sleeping at the skip
+     * @param duration Countdown length in ticks
+     */
+    public void recordSleep(Player player, World world, int participants, int duration) {
+        journal.append(Bukkit.getCurrentTick(), world.getUID(), player.getUniqueId(), SleepJournal.TYPE_SLEEP,
+                participants, duration);
+        addPlayerSleep(player);
+    }
+
+    /**
+     * Record a night skipped by sleeping players
+     * @param world World of the night skip
+     * @param participants Players sleeping at the skip
+     * @param duration Countdown length in ticks
+     */
+    public void recordNightSkip(World world, int participants, int duration) {
+        journal.append(Bukkit.getCurrentTick(), world.getUID(), null, SleepJournal.TYPE_NIGHT_SKIP,
+                participants, duration);
+        rollupOf(world.getUID()).recordSkip(System.currentTimeMillis(), participants, duration);
+        incrementSleepCount();
+    }
+
+    /**
+     * Record a night skipped with /sleep skip
+     * @param world World of the night skip
+     * @param playerId Player that ran the command, null for console
+     */
+    public void recordManualSkip(World world, UUID playerId) {
+        journal.append(Bukkit.getCurrentTick(), world.getUID(), playerId, SleepJournal.TYPE_MANUAL_SKIP, 0, 0);
+        rollupOf(world.getUID()).recordManualSkip(System.currentTimeMillis());
+        incrementManualSkips();
+    }
+
     /**
      * Increment total sleep count
      */
     public void incrementSleepCount() {
         totalSleepCount++;
+        changes++;
         plugin.debugLog("Sleep count incremented to: " + totalSleepCount);
     }
 
@@ -89,16 +388,20 @@ public class StatisticsManager {
      */
     public void incrementManualSkips() {
         manualSkips++;
+        changes++;
         plugin.debugLog("Manual skip count incremented to: " + manualSkips);
     }
 
     /**
      * Add a sleep event for a player
-     * @param playerName Player name
+     * @param player Player
      */
-    public void addPlayerSleep(String playerName) {
-        playerSleepCounts.merge(playerName, 1, Integer::sum);
-        plugin.debugLog("Player " + playerName + " sleep count: " + playerSleepCounts.get(playerName));
+    public void addPlayerSleep(Player player) {
+        int slot = slotOf(player.getUniqueId());
+        playerNames[slot] = player.getName();
+        addSleeps(slot, 1);
+        changes++;
+        plugin.debugLog("Player " + player.getName() + " sleep count: " + sleepCounts[slot]);
     }
 
     /**
@@ -119,27 +422,174 @@ public class StatisticsManager {
 
     /**
      * Get sleep count for a specific player
-     * @param playerName Player name
+     * @param playerId Player UUID
      * @return Sleep count for player
      */
-    public int getPlayerSleepCount(String playerName) {
-        return playerSleepCounts.getOrDefault(playerName, 0);
+    public int getPlayerSleepCount(UUID playerId) {
+        int slot = playerSlots.get(playerId);
+        return slot >= 0 ? sleepCounts[slot] : 0;
+    }
+
+    /**
+     * Get the statistics of a world over a time range
+     * @param world World
+     * @param range Time range
+     * @return Totals of the range
+     */
+    public SleepRollup.Totals getWorldStatistics(World world, SleepRollup.Range range) {
+        SleepRollup rollup = worldRollups.get(world.getUID());
+        if (rollup == null) {
+            return SleepRollup.Totals.empty();
+        }
+        return rollup.getTotals(range, SleepRollup.hourOf(System.currentTimeMillis()));
+    }
+
+    private SleepRollup rollupOf(UUID worldId) {
+        return worldRollups.computeIfAbsent(worldId,
+                id -> new SleepRollup(SleepRollup.hourOf(System.currentTimeMillis())));
+    }
+
+    /**
+     * Get a player's position on the leaderboard
+     * @param playerId Player UUID
+     * @return Rank starting at 1, or 0 if the player never slept
+     */
+    public int getPlayerRank(UUID playerId) {
+        int slot = playerSlots.get(playerId);
+        return slot >= 0 ? leaderboard.rankOf(slot) + 1 : 0;
+    }
+
+    /**
+     * Get the number of players on the leaderboard
+     * @return Ranked player count
+     */
+    public int getRankedPlayers() {
+        return leaderboard.size();
     }
 
     /**
      * Get top sleepers
      * @param limit Number of top players to return
-     * @return Map of player names to sleep counts
-     */
-    public LinkedHashMap<String, Integer> getTopSleepers(int limit) {
-        return playerSleepCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(limit)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+     * @return Leaderboard rows in rank order
+     */
+    public List<LeaderboardEntry> getTopSleepers(int limit) {
+        return getSleepers(0, limit);
+    }
+
+    /**
+     * Get a page of the leaderboard. Every ranked player has their own row,
+     * even if several share a display name.
+     * @param fromRank Rank of the first player, starting at 0
+     * @param limit Number of players to return
+     * @return Leaderboard rows in rank order
+     */
+    public List<LeaderboardEntry> getSleepers(int fromRank, int limit) {
+        List<LeaderboardEntry> sleepers = new ArrayList<>(Math.max(0, Math.min(limit, leaderboard.size())));
+        leaderboard.forEach(fromRank, limit, slot -> sleepers.add(
+                new LeaderboardEntry(leaderboard.rankOf(slot) + 1, getDisplayName(slot), sleepCounts[slot])));
+        return sleepers;
+    }
+
+    private void addSleeps(int slot, int count) {
+        sleepCounts[slot] += count;
+        leaderboard.set(slot, sleepCounts[slot]);
+    }
+
+    private String getDisplayName(int slot) {
+        return playerNames[slot] != null ? playerNames[slot] : playerIds[slot].toString();
+    }
+
+    /**
+     * Get the slot of a player, adding one if they have none yet
+     */
+    private int slotOf(UUID playerId) {
+        int slot = playerSlots.get(playerId);
+        if (slot >= 0) {
+            return slot;
+        }
+
+        slot = newSlot();
+        playerSlots.put(playerId, slot);
+        playerIds[slot] = playerId;
+        return slot;
+    }
+
+    private int newSlot() {
+        int slot = playerCount++;
+        if (slot >= sleepCounts.length) {
+            int capacity = sleepCounts.length << 1;
+            playerIds = Arrays.copyOf(playerIds, capacity);
+            playerNames = Arrays.copyOf(playerNames, capacity);
+            sleepCounts = Arrays.copyOf(sleepCounts, capacity);
+        }
+        return slot;
+    }
+
+    /**
+     * One row of the sleep leaderboard
+     */
+    public static final class LeaderboardEntry {
+        private final int rank;
+        private final String name;
+        private final int sleeps;
+
+        private LeaderboardEntry(int rank, String name, int sleeps) {
+            this.rank = rank;
+            this.name = name;
+            this.sleeps = sleeps;
+        }
+
+        /**
+         * Get the player's position on the leaderboard
+         * @return Rank starting at 1
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        /**
+         * Get the player's last known name
+         * @return Display name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the player's sleep count
+         * @return Sleeps
+         */
+        public int getSleeps() {
+            return sleeps;
+        }
+    }
+
+    /**
+     * Statistics as of one checkpoint, handed to the writer thread
+     */
+    private static final class Checkpoint {
+        private final long changes;
+        private final long totalSleepCount;
+        private final long manualSkips;
+        private final UUID[] playerIds;
+        private final String[] playerNames;
+        private final int[] sleepCounts;
+        private final Map<UUID, SleepRollup> worldRollups;
+        private final long journalSegment;
+        private final int journalRecord;
+
+        private Checkpoint(long changes, long totalSleepCount, long manualSkips, UUID[] playerIds,
+                           String[] playerNames, int[] sleepCounts, Map<UUID, SleepRollup> worldRollups,
+                           long journalSegment, int journalRecord) {
+            this.changes = changes;
+            this.totalSleepCount = totalSleepCount;
+            this.manualSkips = manualSkips;
+            this.playerIds = playerIds;
+            this.playerNames = playerNames;
+            this.sleepCounts = sleepCounts;
+            this.worldRollups = worldRollups;
+            this.journalSegment = journalSegment;
+            this.journalRecord = journalRecord;
+        }
     }
 }
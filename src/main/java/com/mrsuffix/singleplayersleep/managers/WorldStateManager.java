@@ -0,0 +1,304 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.world.WorldSleepState;
+import org.bukkit.GameMode;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keeps per-world sleep state and maintains the eligible and sleeping player
+ * counters incrementally from player events, so quorum checks never have to
+ * scan a world's player list.
+ *
+ * Worlds whose counters change are queued once as dirty, so a burst of bed
+ * events collapses into a single re-evaluation per world on the next tick.
+ */
+public class WorldStateManager {
+
+    private final SinglePlayerSleep plugin;
+    private final Map<UUID, WorldSleepState> states = new HashMap<>();
+    private WorldSleepState[] stateArray = new WorldSleepState[0];
+
+    // What each online player currently contributes to the counters
+    private final Map<UUID, Contribution> contributions = new HashMap<>();
+
+    // Worlds waiting to be re-evaluated, each queued at most once
+    private WorldSleepState[] dirty = new WorldSleepState[4];
+    private int dirtyCount;
+
+    public WorldStateManager(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Create state for every world that is already loaded
+     */
+    public void loadWorlds() {
+        for (World world : plugin.getServer().getWorlds()) {
+            loadWorld(world);
+        }
+    }
+
+    /**
+     * Create the state of a newly loaded world
+     * @param world World
+     */
+    public void loadWorld(World world) {
+        getState(world);
+    }
+
+    /**
+     * Free the state of a world that is being unloaded
+     * @param world World
+     */
+    public void unloadWorld(World world) {
+        WorldSleepState state = states.remove(world.getUID());
+        if (state != null) {
+            if (state.getAnimation() != null) {
+                state.getAnimation().cancel();
+            }
+            plugin.getBossBarManager().removeBossBars(state);
+            stateArray = states.values().toArray(new WorldSleepState[0]);
+            plugin.debugLog("Released sleep state for world " + world.getName());
+        }
+    }
+
+    /**
+     * Get the state of a world, creating it if it was not loaded yet
+     * @param world World
+     * @return World state
+     */
+    public WorldSleepState getState(World world) {
+        WorldSleepState state = states.get(world.getUID());
+        if (state == null) {
+            state = new WorldSleepState(world);
+            state.setSettings(plugin.getConfigManager().resolveWorldSettings(world.getName()));
+            plugin.getCooldownManager().load(state);
+            states.put(world.getUID(), state);
+            stateArray = states.values().toArray(new WorldSleepState[0]);
+        }
+        return state;
+    }
+
+    /**
+     * Resolve the settings of every loaded world again after a config reload
+     */
+    public void reloadSettings() {
+        for (WorldSleepState state : stateArray) {
+            state.setSettings(plugin.getConfigManager().resolveWorldSettings(state.getWorldName()));
+        }
+    }
+
+    /**
+     * Get the state of a world by UID
+     * @param worldId World UID
+     * @return World state, or null if the world is not loaded
+     */
+    public WorldSleepState getState(UUID worldId) {
+        return states.get(worldId);
+    }
+
+    /**
+     * Get all world states as a compact array for the tick driver.
+     * The array is replaced, never modified, when worlds come and go.
+     * @return World states
+     */
+    public WorldSleepState[] getStates() {
+        return stateArray;
+    }
+
+    /**
+     * Queue a world for re-evaluation, once per drain
+     * @param state World state
+     */
+    public void markDirty(WorldSleepState state) {
+        if (state.isDirty()) {
+            return;
+        }
+
+        state.setDirty(true);
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount << 1);
+        }
+        dirty[dirtyCount++] = state;
+    }
+
+    /**
+     * Hand every dirty world that is still loaded to a consumer and clear the queue
+     * @param consumer Consumer for each dirty world
+     */
+    public void drainDirty(Consumer<WorldSleepState> consumer) {
+        int count = dirtyCount;
+        dirtyCount = 0;
+        for (int i = 0; i < count; i++) {
+            WorldSleepState state = dirty[i];
+            dirty[i] = null;
+            state.setDirty(false);
+            if (states.get(state.getWorldId()) == state) {
+                consumer.accept(state);
+            }
+        }
+    }
+
+    /**
+     * Stop every running smooth sleep animation
+     */
+    public void cancelAnimations() {
+        for (WorldSleepState state : stateArray) {
+            if (state.getAnimation() != null) {
+                state.getAnimation().cancel();
+                state.setAnimation(null);
+            }
+        }
+    }
+
+    /**
+     * Recount every online player, used on startup and after a config reload
+     * since eligibility rules may have changed
+     */
+    public void recountAll() {
+        for (Contribution contribution : contributions.values()) {
+            contribution.state.addEligible(contribution.eligible ? -1 : 0);
+            contribution.state.addSleeping(contribution.sleeping ? -1 : 0);
+        }
+        contributions.clear();
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            update(player, player.getWorld(), player.getGameMode(), player.isSleeping(),
+                    plugin.getAFKManager().isAFK(player));
+        }
+    }
+
+    /**
+     * Refresh a player's contribution from their current state
+     * @param player Player to refresh
+     */
+    public void refresh(Player player) {
+        Contribution current = contributions.get(player.getUniqueId());
+        boolean sleeping = current != null ? current.sleeping : player.isSleeping();
+        update(player, player.getWorld(), player.getGameMode(), sleeping, plugin.getAFKManager().isAFK(player));
+    }
+
+    /**
+     * Mark a player as in or out of bed
+     * @param player Player
+     * @param sleeping Whether the player is now sleeping
+     */
+    public void setSleeping(Player player, boolean sleeping) {
+        update(player, player.getWorld(), player.getGameMode(), sleeping, plugin.getAFKManager().isAFK(player));
+    }
+
+    /**
+     * Apply a game mode change before it takes effect on the player
+     * @param player Player
+     * @param gameMode New game mode
+     */
+    public void setGameMode(Player player, GameMode gameMode) {
+        update(player, player.getWorld(), gameMode, isSleeping(player), plugin.getAFKManager().isAFK(player));
+    }
+
+    /**
+     * Apply an AFK transition before it takes effect on the player
+     * @param player Player
+     * @param afk New AFK state
+     */
+    public void setAFK(Player player, boolean afk) {
+        update(player, player.getWorld(), player.getGameMode(), isSleeping(player), afk);
+    }
+
+    /**
+     * Move a player's contribution to the world they are in now. Players are
+     * never in bed right after a world change.
+     * @param player Player
+     */
+    public void changedWorld(Player player) {
+        update(player, player.getWorld(), player.getGameMode(), false, plugin.getAFKManager().isAFK(player));
+    }
+
+    /**
+     * Remove a player's contribution when they leave
+     * @param player Player
+     */
+    public void removePlayer(Player player) {
+        Contribution contribution = contributions.remove(player.getUniqueId());
+        if (contribution != null) {
+            leave(player, contribution);
+        }
+    }
+
+    private boolean isSleeping(Player player) {
+        Contribution contribution = contributions.get(player.getUniqueId());
+        return contribution != null ? contribution.sleeping : player.isSleeping();
+    }
+
+    /**
+     * Replace a player's contribution with one computed from the given state
+     */
+    private void update(Player player, World world, GameMode gameMode, boolean sleeping, boolean afk) {
+        WorldSleepState state = getState(world);
+        boolean eligible = gameMode != GameMode.CREATIVE && gameMode != GameMode.SPECTATOR
+                && (!afk || !state.getSettings().shouldIgnoreAFKPlayers());
+
+        Contribution contribution = contributions.get(player.getUniqueId());
+        if (contribution == null) {
+            contribution = new Contribution(state);
+            contributions.put(player.getUniqueId(), contribution);
+        } else if (contribution.state != state) {
+            leave(player, contribution);
+            contribution.state = state;
+            contribution.eligible = false;
+            contribution.sleeping = false;
+        }
+
+        if (contribution.eligible != eligible) {
+            state.addEligible(eligible ? 1 : -1);
+            contribution.eligible = eligible;
+            markDirty(state);
+        }
+        if (contribution.sleeping != sleeping) {
+            state.addSleeping(sleeping ? 1 : -1);
+            contribution.sleeping = sleeping;
+            if (sleeping) {
+                state.setLastSleeper(player);
+            } else {
+                state.setLastWaker(player);
+            }
+            markDirty(state);
+        }
+    }
+
+    /**
+     * Take a player's contribution back out of its world
+     */
+    private void leave(Player player, Contribution contribution) {
+        WorldSleepState state = contribution.state;
+        state.addEligible(contribution.eligible ? -1 : 0);
+        state.addSleeping(contribution.sleeping ? -1 : 0);
+        if (contribution.sleeping) {
+            state.setLastWaker(player);
+        }
+        if (contribution.eligible || contribution.sleeping) {
+            markDirty(state);
+        }
+    }
+
+    /**
+     * Counters a single player adds to a world
+     */
+    private static final class Contribution {
+        private WorldSleepState state;
+        private boolean eligible;
+        private boolean sleeping;
+
+        private Contribution(WorldSleepState state) {
+            this.state = state;
+        }
+    }
+}
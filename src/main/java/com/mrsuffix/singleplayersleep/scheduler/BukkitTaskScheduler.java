@@ -0,0 +1,96 @@
+package com.mrsuffix.singleplayersleep.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.function.Consumer;
+
+/**
+ * TaskScheduler for Paper and Spigot, where everything but async work runs on
+ * the main thread
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    public BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public void executeGlobal(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delay, long period) {
+        RepeatingTask repeating = new RepeatingTask(task);
+        repeating.runTaskTimer(plugin, delay, period);
+        return repeating;
+    }
+
+    @Override
+    public void runAtEntity(Entity entity, Runnable task) {
+        executeGlobal(task);
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delay, long period) {
+        return runGlobalTimer(task, delay, period);
+    }
+
+    @Override
+    public TaskHandle runAsync(Runnable task) {
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delay, long period) {
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delay, period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getScheduler().cancelTasks(plugin);
+    }
+
+    /**
+     * Repeating runnable that hands itself to the task so it can cancel itself
+     */
+    private static final class RepeatingTask extends BukkitRunnable implements TaskHandle {
+        private final Consumer<TaskHandle> task;
+
+        private RepeatingTask(Consumer<TaskHandle> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.accept(this);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mrsuffix.singleplayersleep.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * TaskScheduler for Folia. World time work goes to the global region
+ * scheduler, per-player work to the entity scheduler and I/O to the async
+ * scheduler.
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin plugin;
+
+    public FoliaTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Check if the server is running Folia
+     * @return true on Folia
+     */
+    public static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        return Bukkit.isGlobalTickThread();
+    }
+
+    @Override
+    public void executeGlobal(Runnable task) {
+        if (Bukkit.isGlobalTickThread()) {
+            task.run();
+        } else {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        }
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delay) {
+        Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1L, delay));
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delay, long period) {
+        FoliaTaskHandle handle = new FoliaTaskHandle();
+        handle.task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduled -> {
+            handle.task = scheduled;
+            task.accept(handle);
+        }, Math.max(1L, delay), period);
+        return handle;
+    }
+
+    @Override
+    public void runAtEntity(Entity entity, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            task.run();
+        } else {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        }
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delay) {
+        entity.getScheduler().execute(plugin, task, null, Math.max(1L, delay));
+    }
+
+    @Override
+    public TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delay, long period) {
+        FoliaTaskHandle handle = new FoliaTaskHandle();
+        handle.task = entity.getScheduler().runAtFixedRate(plugin, scheduled -> {
+            handle.task = scheduled;
+            task.accept(handle);
+        }, null, Math.max(1L, delay), period);
+        return handle;
+    }
+
+    @Override
+    public TaskHandle runAsync(Runnable task) {
+        ScheduledTask scheduled = Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+        return scheduled::cancel;
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delay, long period) {
+        ScheduledTask scheduled = Bukkit.getAsyncScheduler().runAtFixedRate(plugin, t -> task.run(),
+                delay * MILLIS_PER_TICK, period * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        Bukkit.getAsyncScheduler().cancelTasks(plugin);
+    }
+
+    /**
+     * Handle that follows the Folia task it wraps, which may be null when the
+     * entity was already removed
+     */
+    private static final class FoliaTaskHandle implements TaskHandle {
+        private volatile ScheduledTask task;
+
+        @Override
+        public void cancel() {
+            ScheduledTask current = task;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.mrsuffix.singleplayersleep.scheduler;
+
+/**
+ * Handle to a scheduled task, independent of the scheduler implementation
+ */
+public interface TaskHandle {
+
+    /**
+     * Cancel the task. Cancelling an already finished task does nothing.
+     */
+    void cancel();
+}
@@ -0,0 +1,91 @@
+package com.mrsuffix.singleplayersleep.scheduler;
+
+import org.bukkit.entity.Entity;
+
+import java.util.function.Consumer;
+
+/**
+ * Scheduler abstraction so the plugin runs on both Paper and Folia.
+ *
+ * World time and the per-world sleep state live on the global region,
+ * per-player work (effects, boss bars) runs on the player's own scheduler and
+ * file or network I/O runs asynchronously. On Paper all of these map to the
+ * main thread or the Bukkit async pool.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Check if the current thread owns the global (world time) state
+     * @return true if global work may run inline
+     */
+    boolean isGlobalThread();
+
+    /**
+     * Run a task on the global region, inline if already on it
+     * @param task Task to run
+     */
+    void executeGlobal(Runnable task);
+
+    /**
+     * Run a task on the global region after a delay
+     * @param task Task to run
+     * @param delay Delay in ticks
+     */
+    void runGlobalLater(Runnable task, long delay);
+
+    /**
+     * Run a repeating task on the global region
+     * @param task Task to run, receives its own handle
+     * @param delay Initial delay in ticks
+     * @param period Period in ticks
+     * @return Task handle
+     */
+    TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delay, long period);
+
+    /**
+     * Run a task on the thread that owns an entity, inline if already on it.
+     * The task is dropped if the entity is removed first.
+     * @param entity Entity
+     * @param task Task to run
+     */
+    void runAtEntity(Entity entity, Runnable task);
+
+    /**
+     * Run a task on the thread that owns an entity after a delay
+     * @param entity Entity
+     * @param task Task to run
+     * @param delay Delay in ticks
+     */
+    void runAtEntityLater(Entity entity, Runnable task, long delay);
+
+    /**
+     * Run a repeating task on the thread that owns an entity
+     * @param entity Entity
+     * @param task Task to run, receives its own handle
+     * @param delay Initial delay in ticks
+     * @param period Period in ticks
+     * @return Task handle
+     */
+    TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delay, long period);
+
+    /**
+     * Run a task off the server threads
+     * @param task Task to run
+     * @return Task handle
+     */
+    TaskHandle runAsync(Runnable task);
+
+    /**
+     * Run a repeating task off the server threads
+     * @param task Task to run
+     * @param delay Initial delay in ticks
+     * @param period Period in ticks
+     * @return Task handle
+     */
+    TaskHandle runAsyncTimer(Runnable task, long delay, long period);
+
+    /**
+     * Cancel every task scheduled by the plugin
+     */
+    void cancelAll();
+}
@@ -0,0 +1,57 @@
+package com.mrsuffix.singleplayersleep.tasks;
+
+/**
+ * Easing curves for the smooth sleep animation
+ */
+public enum Easing {
+    /** Constant speed */
+    LINEAR,
+    /** Slow start and end, fastest around midnight */
+    EASE_IN_OUT,
+    /** Starts slowly and rushes into the sunrise */
+    EXPONENTIAL;
+
+    /**
+     * Map animation progress to time progress
+     * @param t Progress (0.0 to 1.0)
+     * @return Eased progress (0.0 to 1.0)
+     */
+    public double apply(double t) {
+        switch (this) {
+            case EASE_IN_OUT:
+                return (1.0 - Math.cos(Math.PI * t)) / 2.0;
+            case EXPONENTIAL:
+                return (Math.pow(2.0, 10.0 * t) - 1.0) / 1023.0;
+            default:
+                return t;
+        }
+    }
+
+    /**
+     * Build the cumulative time offset for every tick of an animation
+     * @param distance Total time to advance
+     * @param duration Animation length in ticks
+     * @return Offsets, the last one always equals distance
+     */
+    public long[] table(long distance, int duration) {
+        long[] offsets = new long[duration];
+        for (int i = 0; i < duration; i++) {
+            offsets[i] = Math.round(distance * apply((double) (i + 1) / duration));
+        }
+        offsets[duration - 1] = distance;
+        return offsets;
+    }
+
+    /**
+     * Parse an easing from config, e.g. "ease-in-out"
+     * @param name Config value
+     * @return Easing, LINEAR if unknown
+     */
+    public static Easing fromConfig(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return LINEAR;
+        }
+    }
+}
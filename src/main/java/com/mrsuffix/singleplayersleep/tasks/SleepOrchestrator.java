@@ -0,0 +1,377 @@
+package com.mrsuffix.singleplayersleep.tasks;
+
+import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.events.SleepPhaseChangeEvent;
+import com.mrsuffix.singleplayersleep.utils.EffectUtil;
+import com.mrsuffix.singleplayersleep.utils.TimeUtil;
+import com.mrsuffix.singleplayersleep.world.SleepPhase;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
+import com.mrsuffix.singleplayersleep.world.WorldSleepState;
+import net.kyori.adventure.audience.Audience;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plugin-wide tick driver. Advances every world's countdown and smooth sleep
+ * animation, as well as the AFK deadlines, in a single pass per server tick.
+ * Progress is measured in server ticks, so lag spikes do not skew it.
+ * Runs on the global region so world time changes are safe on Folia.
+ *
+ * Worlds whose sleeping or eligible counters changed are re-evaluated once
+ * per tick, however many bed events arrived in between.
+ *
+ * Also owns the per-world phase transitions and fires SleepPhaseChangeEvent
+ * for each of them.
+ */
+public class SleepOrchestrator implements Runnable {
+
+    private final SinglePlayerSleep plugin;
+    private final Consumer<WorldSleepState> evaluateWorld = this::evaluate;
+
+    // Worlds with broadcasts held back by the anti-spam window
+    private final List<WorldSleepState> pendingBroadcasts = new ArrayList<>();
+    private long nextBroadcastFlush;
+
+    public SleepOrchestrator(SinglePlayerSleep plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run() {
+        long tick = Bukkit.getCurrentTick();
+
+        plugin.getAFKManager().tick(tick);
+        plugin.getWorldStateManager().drainDirty(evaluateWorld);
+
+        if (tick >= nextBroadcastFlush) {
+            flushBroadcasts();
+            nextBroadcastFlush = tick + plugin.getConfigManager().getAntiSpamWindow();
+        }
+
+        for (WorldSleepState state : plugin.getWorldStateManager().getStates()) {
+            switch (state.getPhase()) {
+                case COUNTDOWN:
+                    if (tick >= state.getCountdownEnd()) {
+                        recordNightSkip(state, tick);
+                        state.clearCountdown();
+                        skipNight(state);
+                    } else {
+                        // Update BossBar with timer percentage
+                        plugin.getBossBarManager().updateProgress(state, state.getCountdownProgress(tick));
+                    }
+                    break;
+                case ANIMATING:
+                    if (state.getAnimation().tick()) {
+                        state.setAnimation(null);
+                        finishNightSkip(state);
+                    }
+                    break;
+                case COOLDOWN:
+                    if (!plugin.getCooldownManager().isOnCooldown(state)) {
+                        transition(state, SleepPhase.IDLE);
+                        // Players that went to bed during the cooldown are still waiting
+                        plugin.getWorldStateManager().markDirty(state);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Re-evaluate a world after its counters changed
+     * @param state World state
+     */
+    private void evaluate(WorldSleepState state) {
+        WorldSettings settings = state.getSettings();
+        if (!settings.isEnabled() || plugin.getCooldownManager().isOnCooldown(state)) {
+            // Keep the sleeper, the world is evaluated again once the cooldown ends
+            state.takeLastWaker();
+            return;
+        }
+
+        Player lastSleeper = state.takeLastSleeper();
+        Player waker = state.takeLastWaker();
+
+        if (state.getSleepingPlayers() == 0 && waker == null) {
+            return; // Only eligibility changed while nobody is in bed
+        }
+
+        updateBossBars(state);
+
+        if (settings.isPercentageMode()) {
+            checkPercentageRequirement(state);
+        } else if (state.getSleepingPlayers() > 0) {
+            // Single player mode
+            if (state.isBusy()) {
+                return; // Already processing
+            }
+            // If the last sleeper left, or only eligibility changed, any player in bed starts the skip
+            Player sleeper = lastSleeper != null && lastSleeper.isSleeping() ? lastSleeper : findSleeper(state);
+            if (sleeper == null) {
+                return;
+            }
+
+            // Only log if enabled
+            if (settings.isLogSleepEventsEnabled()) {
+                plugin.getLogger().info("Starting sleep process for " + sleeper.getName());
+            }
+
+            // Broadcast sleep message, rendered once per language
+            broadcast(state, "player-sleeping", sleeper.getName());
+
+            plugin.getTaskScheduler().runAtEntity(sleeper, () -> EffectUtil.playSleepEffects(sleeper, settings));
+
+            // Start BossBar Countdown
+            startCountdown(state);
+        } else if (state.isCountingDown()) {
+            // Last sleeper left their bed, cancel the countdown!
+            cancelCountdown(state);
+
+            if (waker != null) {
+                broadcast(state, "player-woke-up", waker.getName());
+            }
+
+            plugin.getBossBarManager().removeBossBars(state);
+        }
+    }
+
+    /**
+     * Find any player sleeping in a world
+     * @param state World state
+     * @return Sleeping player, or null if there is none
+     */
+    private Player findSleeper(WorldSleepState state) {
+        for (Player player : state.getWorld().getPlayers()) {
+            if (player.isSleeping()) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    private void checkPercentageRequirement(WorldSleepState state) {
+        int sleepingPlayers = state.getSleepingPlayers();
+        int requiredPlayers = state.getRequiredPlayers(state.getSettings().getSleepPercentage());
+
+        if (sleepingPlayers > 0 && sleepingPlayers >= requiredPlayers) {
+            if (state.isBusy())
+                return;
+
+            // Broadcast & Skip
+            broadcast(state, "player-sleeping", sleepingPlayers + " players");
+
+            // For percentage mode, we can also use countdown, or keep it simple.
+            // Let's use countdown for consistency if delay > 0
+            startCountdown(state);
+        }
+    }
+
+    private void updateBossBars(WorldSleepState state) {
+        if (!state.getSettings().isBossBarEnabled())
+            return;
+
+        if (state.isCountingDown()) {
+            return;
+        }
+
+        int totalPlayers = state.getEligiblePlayers();
+        int sleeping = state.getSleepingPlayers();
+        int percentage = state.getSleepPercentage();
+
+        if (sleeping == 0 && state.getPhase() != SleepPhase.ANIMATING) {
+            plugin.getBossBarManager().removeBossBars(state);
+            return;
+        }
+
+        plugin.getBossBarManager().showBossBar(state, percentage, totalPlayers, sleeping);
+    }
+
+    /**
+     * Send a sleep or wake up broadcast, holding it back for the anti-spam
+     * window if enabled
+     * @param state World state
+     * @param key Message key
+     * @param values Message slot values
+     */
+    private void broadcast(WorldSleepState state, String key, String... values) {
+        if (!plugin.getConfigManager().isAntiSpamProtectionEnabled()) {
+            plugin.getMessageManager().send(audience(state), key, values);
+            return;
+        }
+
+        if (state.queueBroadcast(key, values)) {
+            pendingBroadcasts.add(state);
+        }
+    }
+
+    /**
+     * Send the broadcasts held back in this window, one line per world
+     */
+    private void flushBroadcasts() {
+        if (pendingBroadcasts.isEmpty()) {
+            return;
+        }
+
+        for (WorldSleepState state : pendingBroadcasts) {
+            if (plugin.getWorldStateManager().getState(state.getWorldId()) != state) {
+                continue; // Unloaded meanwhile
+            }
+            flushBroadcast(state);
+        }
+        pendingBroadcasts.clear();
+    }
+
+    /**
+     * Send the broadcasts of one world held back in this window
+     * @param state World state
+     */
+    private void flushBroadcast(WorldSleepState state) {
+        if (state.getPendingBroadcasts() == 0) {
+            return;
+        }
+
+        String key = state.getPendingKey();
+        if (key != null) {
+            plugin.getMessageManager().send(audience(state), key, state.getPendingValues());
+        } else {
+            // Several messages in this window, summarize them
+            plugin.getMessageManager().send(audience(state), "sleep-summary", null, null,
+                    String.valueOf(state.getSleepingPlayers()),
+                    String.valueOf(state.getRequiredPlayers(state.getSettings().getSleepPercentage())),
+                    String.valueOf(state.getSleepPercentage()));
+            plugin.debugLog("Merged " + state.getPendingBroadcasts() + " broadcasts in world " + state.getWorldName());
+        }
+
+        state.clearPendingBroadcasts();
+    }
+
+    /**
+     * Build the audience of a world's broadcasts from the configured scope.
+     * Only players are included, so broadcasts are not logged to console.
+     * @param state World state
+     * @return Audience
+     */
+    private Audience audience(WorldSleepState state) {
+        switch (plugin.getConfigManager().getBroadcastScope()) {
+            case SERVER:
+                return Audience.audience(Bukkit.getOnlinePlayers());
+            case GROUP:
+                List<Audience> worlds = new ArrayList<>();
+                for (String worldName : plugin.getConfigManager().getWorldGroup(state.getWorldName())) {
+                    World world = Bukkit.getWorld(worldName);
+                    if (world != null) {
+                        worlds.add(world);
+                    }
+                }
+                if (!worlds.contains(state.getWorld())) {
+                    worlds.add(state.getWorld());
+                }
+                return Audience.audience(worlds);
+            default:
+                return state.getWorld();
+        }
+    }
+
+    /**
+     * Start the night skip countdown for a world
+     * @param state World state
+     */
+    public void startCountdown(WorldSleepState state) {
+        long tick = Bukkit.getCurrentTick();
+        state.startCountdown(tick, tick + state.getSettings().getSleepDelay());
+        transition(state, SleepPhase.COUNTDOWN);
+    }
+
+    /**
+     * Cancel a running countdown, e.g. when the last sleeper leaves their bed
+     * @param state World state
+     */
+    public void cancelCountdown(WorldSleepState state) {
+        if (state.getPhase() != SleepPhase.COUNTDOWN) {
+            return;
+        }
+
+        state.clearCountdown();
+        transition(state, SleepPhase.IDLE);
+    }
+
+    /**
+     * Move a world to another phase and announce the transition
+     * @param state World state
+     * @param phase New phase
+     */
+    private void transition(WorldSleepState state, SleepPhase phase) {
+        SleepPhase previous = state.getPhase();
+        if (previous == phase) {
+            return;
+        }
+
+        state.setPhase(phase);
+        plugin.getServer().getPluginManager().callEvent(new SleepPhaseChangeEvent(state.getWorld(), previous, phase));
+        plugin.debugLog("World " + state.getWorldName() + " changed from " + previous + " to " + phase);
+    }
+
+    /**
+     * Record a night skip and every player sleeping through it in the statistics
+     * @param state World state
+     * @param tick Current server tick
+     */
+    private void recordNightSkip(WorldSleepState state, long tick) {
+        int duration = (int) (tick - state.getCountdownStart());
+        int participants = state.getSleepingPlayers();
+        for (Player player : state.getWorld().getPlayers()) {
+            if (player.isSleeping()) {
+                plugin.getStatisticsManager().recordSleep(player, state.getWorld(), participants, duration);
+            }
+        }
+        plugin.getStatisticsManager().recordNightSkip(state.getWorld(), participants, duration);
+    }
+
+    /**
+     * Skip the night, smoothly or instantly depending on config
+     * @param state World state
+     */
+    private void skipNight(WorldSleepState state) {
+        World world = state.getWorld();
+        if (state.getSettings().isSmoothSleepEnabled()) {
+            // Smooth Sleep
+            state.setAnimation(new SleepTask(plugin, world, state.getSettings()));
+            transition(state, SleepPhase.ANIMATING);
+        } else {
+            // Instant Skip
+            world.setTime(TimeUtil.MORNING_TIME);
+            finishNightSkip(state);
+        }
+    }
+
+    private void finishNightSkip(WorldSleepState state) {
+        World world = state.getWorld();
+        if (state.getSettings().shouldClearWeather()) {
+            world.setStorm(false);
+            world.setThundering(false);
+        }
+
+        // Held back sleep messages belong before the morning, not after it
+        flushBroadcast(state);
+        pendingBroadcasts.remove(state);
+        plugin.getMessageManager().send(audience(state), "good-morning");
+
+        plugin.getBossBarManager().removeBossBars(state);
+
+        plugin.getCooldownManager().setCooldown(state);
+        transition(state, SleepPhase.COOLDOWN);
+
+        if (plugin.getConfigManager().isAutoSaveEnabled()) {
+            plugin.getTaskScheduler().runGlobalLater(
+                    () -> Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "save-all"),
+                    plugin.getConfigManager().getAutoSaveDelay());
+        }
+    }
+}
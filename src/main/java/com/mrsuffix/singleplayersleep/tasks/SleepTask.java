@@ -2,57 +2,109 @@ package com.mrsuffix.singleplayersleep.tasks;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
 import com.mrsuffix.singleplayersleep.utils.TimeUtil;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
 import org.bukkit.World;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.entity.Player;
+
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Task to handle smooth night skipping (time acceleration)
+ * Smooth night skipping (time acceleration) for one world, advanced by
+ * SleepOrchestrator once per tick
+ *
+ * The time offset of every tick is computed once when the animation starts,
+ * so it always ends at morning after the configured duration.
+ *
+ * In client mode the sunrise is only played on the viewers' clients through
+ * a relative player time offset; the world's real time is set once when the
+ * animation ends. In world mode the world time itself is advanced every tick.
  */
-public class SleepTask extends BukkitRunnable {
+public class SleepTask {
 
     private final SinglePlayerSleep plugin;
     private final World world;
-    private final Runnable onComplete;
+    private final boolean clientSide;
+    private final int updateInterval;
+
+    // Full world time the animation started at and the offset of each tick
+    private final long startTime;
+    private final long[] offsets;
+    private int ticks;
+
+    // Client mode: who has been shown the animated time
+    private final Set<Player> viewers = new HashSet<>();
 
-    public SleepTask(SinglePlayerSleep plugin, World world, Runnable onComplete) {
+    public SleepTask(SinglePlayerSleep plugin, World world, WorldSettings settings) {
         this.plugin = plugin;
         this.world = world;
-        this.onComplete = onComplete;
-    }
+        this.clientSide = plugin.getConfigManager().isSmoothSleepClientSide();
+        this.updateInterval = Math.max(1, plugin.getConfigManager().getSmoothSleepClientInterval());
+        this.startTime = world.getFullTime();
 
-    @Override
-    public void run() {
-        if (!TimeUtil.isNight(world)) {
+        long time = world.getTime();
+        if (!TimeUtil.isNight(time)) {
             // Already day
-            complete();
+            this.offsets = new long[0];
             return;
         }
 
-        long speed = plugin.getConfigManager().getSmoothSleepSpeed();
-        long currentTime = world.getTime();
-
-        // Accelerate time
-        long newTime = currentTime + speed;
+        long distance = TimeUtil.DAY_END + TimeUtil.MORNING_TIME - time;
+        int duration = settings.getSmoothSleepDuration();
+        if (duration <= 0) {
+            // No target duration, derive it from the fixed speed
+            long speed = Math.max(1L, settings.getSmoothSleepSpeed());
+            duration = (int) ((distance + speed - 1) / speed);
+        }
+        this.offsets = settings.getSmoothSleepEasing().table(distance, duration);
+    }
 
-        // Check if we reached morning (wrap around check handled by Bukkit usually, but
-        // logic here assumes < 24000 loop)
-        // If we crossed into day (0 - 1000 roughly)
-        if (newTime >= 24000) {
-            newTime -= 24000;
+    /**
+     * Advance the animation by one tick
+     * @return true once morning is reached
+     */
+    public boolean tick() {
+        if (ticks >= offsets.length) {
+            return true;
         }
 
-        world.setTime(newTime);
+        long target = startTime + offsets[ticks];
+        boolean finished = ++ticks == offsets.length;
+
+        if (!clientSide || finished) {
+            world.setFullTime(target);
+            if (finished) {
+                resetViewers();
+            }
+            return finished;
+        }
 
-        // Check if it's morning now (approx check)
-        if (TimeUtil.isDay(world)) {
-            complete();
+        if ((ticks - 1) % updateInterval == 0) {
+            long viewerOffset = target - world.getFullTime();
+            for (Player player : world.getPlayers()) {
+                viewers.add(player);
+                plugin.getTaskScheduler().runAtEntity(player, () -> player.setPlayerTime(viewerOffset, true));
+            }
         }
+        return false;
+    }
+
+    /**
+     * Stop the animation without touching the world time, e.g. on shutdown
+     */
+    public void cancel() {
+        resetViewers();
     }
 
-    private void complete() {
-        this.cancel();
-        if (onComplete != null) {
-            onComplete.run();
+    /**
+     * Give every viewer the real world time back
+     */
+    private void resetViewers() {
+        for (Player player : viewers) {
+            if (player.isOnline()) {
+                plugin.getTaskScheduler().runAtEntity(player, player::resetPlayerTime);
+            }
         }
+        viewers.clear();
     }
 }
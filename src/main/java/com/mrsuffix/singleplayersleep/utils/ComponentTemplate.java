@@ -0,0 +1,145 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A legacy (&amp;-coded) text template parsed once into styled pieces.
+ * Placeholders become slots that keep the style they appear in, so
+ * rendering only creates the slot components and never parses text again.
+ * Templates without placeholders render to one shared component.
+ */
+public final class ComponentTemplate {
+
+    private final String[] tokens;
+    private final Component[] literals;
+    private final Style[] slotStyles;
+    private final int[] slots;
+    private final boolean[] usedSlots;
+    private final Component constant;
+
+    private ComponentTemplate(String[] tokens, List<Component> literals, List<Style> slotStyles, List<Integer> slots) {
+        this.tokens = tokens;
+        this.literals = literals.toArray(new Component[0]);
+        this.slotStyles = slotStyles.toArray(new Style[0]);
+        this.slots = new int[slots.size()];
+        this.usedSlots = new boolean[tokens.length];
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = slots.get(i);
+            if (this.slots[i] >= 0) {
+                usedSlots[this.slots[i]] = true;
+            }
+        }
+        this.constant = slots.stream().allMatch(slot -> slot < 0) ? build(new String[0]) : null;
+    }
+
+    /**
+     * Parse a template
+     * @param template Template with &amp; color codes
+     * @param placeholders Placeholder tokens, e.g. "{player}"; a token's index is its slot
+     * @return Compiled template
+     */
+    public static ComponentTemplate compile(String template, String... placeholders) {
+        List<Component> literals = new ArrayList<>();
+        List<Style> slotStyles = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        Component parsed = LegacyComponentSerializer.legacyAmpersand().deserialize(template);
+        flatten(parsed, Style.empty(), placeholders, literals, slotStyles, slots);
+        return new ComponentTemplate(placeholders.clone(), literals, slotStyles, slots);
+    }
+
+    private static void flatten(Component component, Style parent, String[] placeholders,
+                                List<Component> literals, List<Style> slotStyles, List<Integer> slots) {
+        Style style = component.style().merge(parent, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (component instanceof TextComponent) {
+            split(((TextComponent) component).content(), style, placeholders, literals, slotStyles, slots);
+        }
+        for (Component child : component.children()) {
+            flatten(child, style, placeholders, literals, slotStyles, slots);
+        }
+    }
+
+    /**
+     * Split a piece of text at its placeholders
+     */
+    private static void split(String text, Style style, String[] placeholders,
+                              List<Component> literals, List<Style> slotStyles, List<Integer> slots) {
+        int start = 0;
+        while (start < text.length()) {
+            int found = -1;
+            int foundAt = text.length();
+            for (int slot = 0; slot < placeholders.length; slot++) {
+                int at = text.indexOf(placeholders[slot], start);
+                if (at >= 0 && at < foundAt) {
+                    found = slot;
+                    foundAt = at;
+                }
+            }
+
+            if (foundAt > start) {
+                literals.add(Component.text(text.substring(start, foundAt), style));
+                slotStyles.add(null);
+                slots.add(-1);
+            }
+            if (found < 0) {
+                break;
+            }
+
+            literals.add(null);
+            slotStyles.add(style);
+            slots.add(found);
+            start = foundAt + placeholders[found].length();
+        }
+    }
+
+    /**
+     * Check if the template contains a placeholder
+     * @param slot Slot of the placeholder
+     * @return true if rendering depends on that slot's value
+     */
+    public boolean uses(int slot) {
+        return usedSlots[slot];
+    }
+
+    /**
+     * Render the template
+     * @param values Slot values, indexed like the placeholders it was compiled with.
+     *               Missing or null values keep the placeholder text.
+     * @return Rendered component
+     */
+    public Component render(String... values) {
+        return constant != null ? constant : build(values);
+    }
+
+    private Component build(String[] values) {
+        TextComponent.Builder builder = Component.text();
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            if (slot < 0) {
+                builder.append(literals[i]);
+            } else {
+                String value = slot < values.length && values[slot] != null ? values[slot] : tokens[slot];
+                builder.append(Component.text(value, slotStyles[i]));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Render the template with a single slot filled
+     * @param slot Slot to fill
+     * @param value Slot value
+     * @return Rendered component
+     */
+    public Component render(int slot, String value) {
+        String[] values = new String[tokens.length];
+        values[slot] = value;
+        return render(values);
+    }
+}
@@ -1,9 +1,9 @@
 package com.mrsuffix.singleplayersleep.utils;
 
 import com.mrsuffix.singleplayersleep.SinglePlayerSleep;
+import com.mrsuffix.singleplayersleep.world.WorldSettings;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * Utility class for visual and sound effects
@@ -14,11 +14,12 @@ public class EffectUtil {
      * Play sleep-related effects for a player
      * 
      * @param player Player to show effects to
+     * @param settings Settings of the player's world
      */
-    public static void playSleepEffects(Player player) {
+    public static void playSleepEffects(Player player, WorldSettings settings) {
         SinglePlayerSleep plugin = SinglePlayerSleep.getInstance();
 
-        if (!plugin.getConfigManager().areParticlesEnabled() && !plugin.getConfigManager().areSoundsEnabled()) {
+        if (!settings.areParticlesEnabled() && !settings.areSoundsEnabled()) {
             return;
         }
 
@@ -29,36 +30,32 @@ public class EffectUtil {
         int particleCount = calculateParticleCount(world);
 
         // Play sleep sound
-        if (plugin.getConfigManager().areSoundsEnabled()) {
+        if (settings.areSoundsEnabled()) {
             world.playSound(location, Sound.BLOCK_NOTE_BLOCK_CHIME, 1.0f, 1.0f);
             plugin.debugLog("Played sleep sound for " + player.getName());
         }
 
         // Show sleep particles
-        if (plugin.getConfigManager().areParticlesEnabled()) {
-            new BukkitRunnable() {
-                int count = 0;
-
-                @Override
-                public void run() {
-                    if (count >= 20) { // Show particles for 1 second (20 ticks)
-                        cancel();
-                        return;
-                    }
-
-                    // Create dreamy particle effect around the player
-                    Location particleLocation = location.clone().add(
-                            (Math.random() - 0.5) * 3,
-                            Math.random() * 2 + 1,
-                            (Math.random() - 0.5) * 3);
-
-                    world.spawnParticle(Particle.CLOUD, particleLocation, Math.max(1, particleCount / 2), 0.1, 0.1, 0.1,
-                            0.01);
-                    world.spawnParticle(Particle.ENCHANT, particleLocation, particleCount, 0.2, 0.2, 0.2, 0.1);
-
-                    count++;
+        if (settings.areParticlesEnabled()) {
+            int[] count = {0};
+            plugin.getTaskScheduler().runAtEntityTimer(player, task -> {
+                if (count[0] >= 20) { // Show particles for 1 second (20 ticks)
+                    task.cancel();
+                    return;
                 }
-            }.runTaskTimer(plugin, 0L, 1L);
+
+                // Create dreamy particle effect around the player
+                Location particleLocation = location.clone().add(
+                        (Math.random() - 0.5) * 3,
+                        Math.random() * 2 + 1,
+                        (Math.random() - 0.5) * 3);
+
+                world.spawnParticle(Particle.CLOUD, particleLocation, Math.max(1, particleCount / 2), 0.1, 0.1, 0.1,
+                        0.01);
+                world.spawnParticle(Particle.ENCHANT, particleLocation, particleCount, 0.2, 0.2, 0.2, 0.1);
+
+                count[0]++;
+            }, 0L, 1L);
 
             plugin.debugLog("Started sleep particle effects for " + player.getName());
         }
@@ -68,11 +65,12 @@ public class EffectUtil {
      * Play morning-related effects for a player
      * 
      * @param player Player to show effects to
+     * @param settings Settings of the player's world
      */
-    public static void playMorningEffects(Player player) {
+    public static void playMorningEffects(Player player, WorldSettings settings) {
         SinglePlayerSleep plugin = SinglePlayerSleep.getInstance();
 
-        if (!plugin.getConfigManager().areParticlesEnabled() && !plugin.getConfigManager().areSoundsEnabled()) {
+        if (!settings.areParticlesEnabled() && !settings.areSoundsEnabled()) {
             return;
         }
 
@@ -83,51 +81,43 @@ public class EffectUtil {
         int particleCount = calculateParticleCount(world);
 
         // Play morning sound (rooster crow simulation)
-        if (plugin.getConfigManager().areSoundsEnabled()) {
+        if (settings.areSoundsEnabled()) {
             world.playSound(location, Sound.ENTITY_CHICKEN_AMBIENT, 1.0f, 0.8f);
 
             // Play a bell sound for "good morning"
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    world.playSound(location, Sound.BLOCK_NOTE_BLOCK_BELL, 0.7f, 1.2f);
-                }
-            }.runTaskLater(plugin, 10L);
+            plugin.getTaskScheduler().runAtEntityLater(player,
+                    () -> world.playSound(location, Sound.BLOCK_NOTE_BLOCK_BELL, 0.7f, 1.2f), 10L);
 
             plugin.debugLog("Played morning sounds for " + player.getName());
         }
 
         // Show morning particles
-        if (plugin.getConfigManager().areParticlesEnabled()) {
-            new BukkitRunnable() {
-                int count = 0;
-
-                @Override
-                public void run() {
-                    if (count >= 30) { // Show particles for 1.5 seconds
-                        cancel();
-                        return;
-                    }
-
-                    // Create sunrise effect with golden particles
-                    Location particleLocation = location.clone().add(
-                            (Math.random() - 0.5) * 4,
-                            Math.random() * 3 + 1,
-                            (Math.random() - 0.5) * 4);
-
-                    world.spawnParticle(Particle.FLAME, particleLocation, Math.max(1, particleCount / 2), 0.1, 0.1, 0.1,
-                            0.01);
-                    world.spawnParticle(Particle.HAPPY_VILLAGER, particleLocation, particleCount, 0.3, 0.3, 0.3, 0.1);
-
-                    // Occasional firework-like effect
-                    if (count % 10 == 0) {
-                        world.spawnParticle(Particle.FIREWORK,
-                                location.clone().add(0, 3, 0), 5, 1, 1, 1, 0.1);
-                    }
-
-                    count++;
+        if (settings.areParticlesEnabled()) {
+            int[] count = {0};
+            plugin.getTaskScheduler().runAtEntityTimer(player, task -> {
+                if (count[0] >= 30) { // Show particles for 1.5 seconds
+                    task.cancel();
+                    return;
+                }
+
+                // Create sunrise effect with golden particles
+                Location particleLocation = location.clone().add(
+                        (Math.random() - 0.5) * 4,
+                        Math.random() * 3 + 1,
+                        (Math.random() - 0.5) * 4);
+
+                world.spawnParticle(Particle.FLAME, particleLocation, Math.max(1, particleCount / 2), 0.1, 0.1, 0.1,
+                        0.01);
+                world.spawnParticle(Particle.HAPPY_VILLAGER, particleLocation, particleCount, 0.3, 0.3, 0.3, 0.1);
+
+                // Occasional firework-like effect
+                if (count[0] % 10 == 0) {
+                    world.spawnParticle(Particle.FIREWORK,
+                            location.clone().add(0, 3, 0), 5, 1, 1, 1, 0.1);
                 }
-            }.runTaskTimer(plugin, 0L, 1L);
+
+                count[0]++;
+            }, 0L, 1L);
 
             plugin.debugLog("Started morning particle effects for " + player.getName());
         }
@@ -138,32 +128,29 @@ public class EffectUtil {
      * 
      * @param player  Player to show countdown to
      * @param seconds Number of seconds to countdown
+     * @param settings Settings of the player's world
      */
-    public static void showCountdown(Player player, int seconds) {
+    public static void showCountdown(Player player, int seconds, WorldSettings settings) {
         SinglePlayerSleep plugin = SinglePlayerSleep.getInstance();
 
-        new BukkitRunnable() {
-            int remaining = seconds;
-
-            @Override
-            public void run() {
-                if (remaining <= 0) {
-                    cancel();
-                    return;
-                }
-
-                // Show countdown in action bar
-                player.sendActionBar(ChatColor.YELLOW + "Night skip in: " + ChatColor.GOLD + remaining + "s");
+        int[] remaining = {seconds};
+        plugin.getTaskScheduler().runAtEntityTimer(player, task -> {
+            if (remaining[0] <= 0) {
+                task.cancel();
+                return;
+            }
 
-                // Play tick sound
-                if (plugin.getConfigManager().areSoundsEnabled()) {
-                    player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_PLING, 0.5f,
-                            1.0f + (remaining * 0.1f));
-                }
+            // Show countdown in action bar
+            player.sendActionBar(ChatColor.YELLOW + "Night skip in: " + ChatColor.GOLD + remaining[0] + "s");
 
-                remaining--;
+            // Play tick sound
+            if (settings.areSoundsEnabled()) {
+                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_PLING, 0.5f,
+                        1.0f + (remaining[0] * 0.1f));
             }
-        }.runTaskTimer(plugin, 0L, 20L);
+
+            remaining[0]--;
+        }, 0L, 20L);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.mrsuffix.singleplayersleep.utils;
 
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
@@ -10,6 +11,14 @@ import org.bukkit.entity.Player;
  */
 public class MessageUtil {
 
+    // Placeholders of the config messages, a token's index is its slot in the message templates
+    public static final String[] MESSAGE_PLACEHOLDERS = {"{player}", "{time}", "{sleeping}", "{required}", "{percentage}"};
+    public static final int PLAYER = 0;
+    public static final int TIME = 1;
+    public static final int SLEEPING = 2;
+    public static final int REQUIRED = 3;
+    public static final int PERCENTAGE = 4;
+
     /**
      * Send a colored message to a command sender
      * @param sender Command sender
@@ -28,6 +37,15 @@ public class MessageUtil {
         player.sendMessage(colorize(message));
     }
 
+    /**
+     * Send a rendered message to a command sender
+     * @param sender Command sender
+     * @param message Message to send
+     */
+    public static void sendMessage(CommandSender sender, Component message) {
+        sender.sendMessage(message);
+    }
+
     /**
      * Broadcast a colored message to all online players
      * @param message Message to broadcast
@@ -0,0 +1,265 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Indexed skip list ranking int slots by score, highest first, ties broken
+ * by the lower slot. Every link also stores how many entries it skips, so
+ * besides inserting, moving and removing a slot, looking up the rank of a
+ * slot and the slot at a rank take O(log n) as well.
+ *
+ * Nodes live in primitive arrays indexed by slot; the link arrays of a node
+ * are reused when its score changes, so a score update does not allocate.
+ */
+public class RankedSlotList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final int HEAD = 0; // Node 0 is the head, nodes are slot + 1
+    private static final int NIL = 0;  // Nothing links back to the head
+
+    private int[][] next;
+    private int[][] span;
+    private int[] scores;
+    private int level = 1;
+    private int size;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    // Scratch space of the search, one entry per level
+    private final int[] update = new int[MAX_LEVEL];
+    private final int[] rank = new int[MAX_LEVEL];
+
+    public RankedSlotList(int expectedSlots) {
+        int capacity = Math.max(16, expectedSlots + 1);
+        next = new int[capacity][];
+        span = new int[capacity][];
+        scores = new int[capacity];
+        next[HEAD] = new int[MAX_LEVEL];
+        span[HEAD] = new int[MAX_LEVEL];
+    }
+
+    /**
+     * Insert a slot or move it to a new score
+     * @param slot Slot (must not be negative)
+     * @param score New score
+     */
+    public void set(int slot, int score) {
+        int node = slot + 1;
+        if (node >= scores.length) {
+            int capacity = Math.max(scores.length << 1, node + 1);
+            next = Arrays.copyOf(next, capacity);
+            span = Arrays.copyOf(span, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+
+        if (next[node] == null) {
+            int height = randomLevel();
+            next[node] = new int[height];
+            span[node] = new int[height];
+        } else if (scores[node] == score) {
+            return;
+        } else {
+            unlink(node);
+        }
+
+        scores[node] = score;
+        link(node);
+    }
+
+    /**
+     * Remove a slot
+     * @param slot Slot
+     */
+    public void remove(int slot) {
+        int node = slot + 1;
+        if (!contains(slot)) {
+            return;
+        }
+
+        unlink(node);
+        next[node] = null;
+        span[node] = null;
+    }
+
+    /**
+     * Check if a slot is ranked
+     * @param slot Slot
+     * @return true if ranked
+     */
+    public boolean contains(int slot) {
+        int node = slot + 1;
+        return slot >= 0 && node < next.length && next[node] != null;
+    }
+
+    /**
+     * Get the rank of a slot
+     * @param slot Slot
+     * @return Rank starting at 0 for the highest score, or -1 if not ranked
+     */
+    public int rankOf(int slot) {
+        if (!contains(slot)) {
+            return -1;
+        }
+
+        int node = slot + 1;
+        int score = scores[node];
+        int x = HEAD;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (next[x][i] != NIL && (next[x][i] == node || before(next[x][i], score, node))) {
+                traversed += span[x][i];
+                x = next[x][i];
+            }
+            if (x == node) {
+                return traversed - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the slot at a rank
+     * @param rank Rank starting at 0 for the highest score
+     * @return Slot, or -1 if the rank is out of range
+     */
+    public int slotAt(int rank) {
+        int node = nodeAt(rank);
+        return node != NIL ? node - 1 : -1;
+    }
+
+    /**
+     * Visit the slots of a range of ranks in rank order
+     * @param fromRank First rank
+     * @param count Maximum number of slots
+     * @param consumer Receives each slot
+     */
+    public void forEach(int fromRank, int count, IntConsumer consumer) {
+        int node = nodeAt(fromRank);
+        for (int i = 0; i < count && node != NIL; i++) {
+            consumer.accept(node - 1);
+            node = next[node][0];
+        }
+    }
+
+    /**
+     * Get the number of ranked slots
+     * @return Slot count
+     */
+    public int size() {
+        return size;
+    }
+
+    private int nodeAt(int rank) {
+        if (rank < 0 || rank >= size) {
+            return NIL;
+        }
+
+        int target = rank + 1;
+        int x = HEAD;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (next[x][i] != NIL && traversed + span[x][i] <= target) {
+                traversed += span[x][i];
+                x = next[x][i];
+            }
+            if (traversed == target) {
+                return x;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Link a node at its score, using the height of its link arrays
+     */
+    private void link(int node) {
+        int score = scores[node];
+        int height = next[node].length;
+
+        int x = HEAD;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (next[x][i] != NIL && before(next[x][i], score, node)) {
+                rank[i] += span[x][i];
+                x = next[x][i];
+            }
+            update[i] = x;
+        }
+
+        if (height > level) {
+            for (int i = level; i < height; i++) {
+                rank[i] = 0;
+                update[i] = HEAD;
+                span[HEAD][i] = size;
+            }
+            level = height;
+        }
+
+        for (int i = 0; i < height; i++) {
+            int previous = update[i];
+            next[node][i] = next[previous][i];
+            next[previous][i] = node;
+            span[node][i] = span[previous][i] - (rank[0] - rank[i]);
+            span[previous][i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = height; i < level; i++) {
+            span[update[i]][i]++;
+        }
+        size++;
+    }
+
+    /**
+     * Unlink a node, keeping its link arrays
+     */
+    private void unlink(int node) {
+        int score = scores[node];
+        int x = HEAD;
+        for (int i = level - 1; i >= 0; i--) {
+            while (next[x][i] != NIL && before(next[x][i], score, node)) {
+                x = next[x][i];
+            }
+            update[i] = x;
+        }
+
+        for (int i = 0; i < level; i++) {
+            int previous = update[i];
+            if (next[previous][i] == node) {
+                span[previous][i] += span[node][i] - 1;
+                next[previous][i] = next[node][i];
+            } else {
+                span[previous][i]--;
+            }
+        }
+        while (level > 1 && next[HEAD][level - 1] == NIL) {
+            span[HEAD][level - 1] = 0;
+            level--;
+        }
+        size--;
+    }
+
+    /**
+     * Check if a node ranks before the given score and node
+     */
+    private boolean before(int other, int score, int node) {
+        return scores[other] > score || (scores[other] == score && other < node);
+    }
+
+    /**
+     * Pick a node height, each level with a probability of 1/4
+     */
+    private int randomLevel() {
+        int height = 1;
+        while (height < MAX_LEVEL && (nextRandom() & 3) == 0) {
+            height++;
+        }
+        return height;
+    }
+
+    private int nextRandom() {
+        // xorshift64
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) (seed >>> 32);
+    }
+}
@@ -25,7 +25,15 @@ public class TimeUtil {
      * @return true if it's night time
      */
     public static boolean isNight(World world) {
-        long time = world.getTime();
+        return isNight(world.getTime());
+    }
+
+    /**
+     * Check if a time of day is night time
+     * @param time Time of day (0 - 23999)
+     * @return true if it's night time
+     */
+    public static boolean isNight(long time) {
         return time >= NIGHT_START && time < SUNRISE_START;
     }
 
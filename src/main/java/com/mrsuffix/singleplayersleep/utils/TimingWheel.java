@@ -0,0 +1,171 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical timing wheel for int ids keyed by deadline tick.
+ * Scheduling, rescheduling and cancelling are O(1); advancing only touches
+ * the buckets that come due, so ids whose deadline has not elapsed are never
+ * visited except when they cascade down a level.
+ */
+public class TimingWheel {
+
+    private static final int LEVEL_BITS = 6;
+    private static final int BUCKETS = 1 << LEVEL_BITS;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY = (1L << (LEVEL_BITS * LEVELS)) - 1;
+    private static final int NONE = -1;
+
+    private final int[] heads = new int[LEVELS * BUCKETS];
+    private int[] next;
+    private int[] prev;
+    private int[] bucketOf;
+    private long[] deadlines;
+    private long currentTick;
+
+    public TimingWheel(long startTick, int initialCapacity) {
+        this.currentTick = startTick;
+        Arrays.fill(heads, NONE);
+        next = new int[initialCapacity];
+        prev = new int[initialCapacity];
+        bucketOf = new int[initialCapacity];
+        deadlines = new long[initialCapacity];
+        Arrays.fill(bucketOf, NONE);
+    }
+
+    /**
+     * Schedule an id, replacing any deadline it already had
+     * @param id Id to schedule (must not be negative)
+     * @param deadlineTick Tick at which the id expires
+     */
+    public void schedule(int id, long deadlineTick) {
+        ensureCapacity(id);
+        if (bucketOf[id] != NONE) {
+            unlink(id);
+        }
+
+        deadlines[id] = Math.max(deadlineTick, currentTick + 1);
+        link(id);
+    }
+
+    /**
+     * Remove an id from the wheel
+     * @param id Id to cancel
+     */
+    public void cancel(int id) {
+        if (id < bucketOf.length && bucketOf[id] != NONE) {
+            unlink(id);
+        }
+    }
+
+    /**
+     * Check if an id currently has a deadline
+     * @param id Id to check
+     * @return true if scheduled
+     */
+    public boolean isScheduled(int id) {
+        return id < bucketOf.length && bucketOf[id] != NONE;
+    }
+
+    /**
+     * Get the tick the wheel has advanced to
+     * @return Current tick
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Advance the wheel up to a tick, expiring every id that comes due.
+     * Expired ids are unscheduled before the callback runs, so the callback
+     * may schedule them again. It may also cancel or reschedule other ids,
+     * including ones due in the same tick.
+     * @param tick Tick to advance to
+     * @param expired Callback for each expired id
+     */
+    public void advance(long tick, IntConsumer expired) {
+        while (currentTick < tick) {
+            currentTick++;
+
+            // Cascade higher levels first so entries can fall all the way down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (LEVEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (LEVEL_BITS * level)) & BUCKET_MASK);
+                }
+            }
+
+            // Take one id at a time, the rest stay linked in case the callback
+            // cancels or moves them
+            int bucket = (int) currentTick & BUCKET_MASK;
+            while (heads[bucket] != NONE) {
+                int id = heads[bucket];
+                unlink(id);
+                expired.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Re-insert every entry of a higher level bucket so it lands closer to
+     * its deadline
+     */
+    private void cascade(int level, int index) {
+        int bucket = level * BUCKETS + index;
+        int id = heads[bucket];
+        heads[bucket] = NONE;
+        while (id != NONE) {
+            int following = next[id];
+            link(id);
+            id = following;
+        }
+    }
+
+    private void link(int id) {
+        long delay = Math.min(deadlines[id] - currentTick, MAX_DELAY);
+        long deadline = currentTick + delay;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= (1L << (LEVEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int bucket = level * BUCKETS + ((int) (deadline >>> (LEVEL_BITS * level)) & BUCKET_MASK);
+        int head = heads[bucket];
+        next[id] = head;
+        prev[id] = NONE;
+        if (head != NONE) {
+            prev[head] = id;
+        }
+        heads[bucket] = id;
+        bucketOf[id] = bucket;
+    }
+
+    private void unlink(int id) {
+        int bucket = bucketOf[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            heads[bucket] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+        bucketOf[id] = NONE;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < bucketOf.length) {
+            return;
+        }
+
+        int capacity = Math.max(bucketOf.length << 1, id + 1);
+        int oldLength = bucketOf.length;
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        Arrays.fill(bucketOf, oldLength, capacity, NONE);
+    }
+}
@@ -0,0 +1,178 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing UUID to int index backed by primitive arrays.
+ * Lookups do not allocate, which keeps it usable from hot event handlers.
+ */
+public class UUIDSlotIndex {
+
+    private static final int MISSING = -1;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public UUIDSlotIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Get the value stored for a UUID
+     * @param uuid UUID to look up
+     * @return Stored value, or -1 if absent
+     */
+    public int get(UUID uuid) {
+        return get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Get the value stored for a UUID given as its two halves
+     * @param most Most significant bits
+     * @param least Least significant bits
+     * @return Stored value, or -1 if absent
+     */
+    public int get(long most, long least) {
+        int index = hash(most, least) & mask;
+        while (used[index]) {
+            if (mostBits[index] == most && leastBits[index] == least) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Store a value for a UUID, replacing any previous value
+     * @param uuid UUID key
+     * @param value Value to store (must not be negative)
+     */
+    public void put(UUID uuid, int value) {
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length << 1);
+        }
+
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int index = hash(most, least) & mask;
+        while (used[index]) {
+            if (mostBits[index] == most && leastBits[index] == least) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        used[index] = true;
+        mostBits[index] = most;
+        leastBits[index] = least;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove a UUID from the index
+     * @param uuid UUID to remove
+     * @return Removed value, or -1 if absent
+     */
+    public int remove(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int index = hash(most, least) & mask;
+        while (used[index]) {
+            if (mostBits[index] == most && leastBits[index] == least) {
+                int removed = values[index];
+                shiftBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Get the number of stored entries
+     * @return Entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Close the gap left by a removed entry so linear probing stays intact
+     * without tombstones
+     */
+    private void shiftBack(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (!used[index]) {
+                break;
+            }
+
+            int home = hash(mostBits[index], leastBits[index]) & mask;
+            // Move the entry into the gap if its home slot is not between the gap and its position
+            boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                mostBits[gap] = mostBits[index];
+                leastBits[gap] = leastBits[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void resize(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int index = hash(oldMost[i], oldLeast[i]) & mask;
+                while (used[index]) {
+                    index = (index + 1) & mask;
+                }
+                used[index] = true;
+                mostBits[index] = oldMost[i];
+                leastBits[index] = oldLeast[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long most, long least) {
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,26 @@
+package com.mrsuffix.singleplayersleep.world;
+
+/**
+ * Who receives the sleep broadcasts of a world
+ */
+public enum BroadcastScope {
+    /** Players in the world itself */
+    WORLD,
+    /** Players in every world of the world's group (e.g. its nether and end) */
+    GROUP,
+    /** Every online player */
+    SERVER;
+
+    /**
+     * Parse a scope from config
+     * @param name Config value
+     * @return Scope, WORLD if unknown
+     */
+    public static BroadcastScope fromConfig(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return WORLD;
+        }
+    }
+}
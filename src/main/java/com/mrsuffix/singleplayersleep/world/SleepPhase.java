@@ -0,0 +1,17 @@
+package com.mrsuffix.singleplayersleep.world;
+
+/**
+ * Phases of the per-world night skip state machine
+ *
+ * IDLE -> COUNTDOWN -> ANIMATING -> COOLDOWN -> IDLE
+ */
+public enum SleepPhase {
+    /** Nothing in progress */
+    IDLE,
+    /** Enough players are sleeping and the delay is running */
+    COUNTDOWN,
+    /** Smooth sleep is fast-forwarding to morning */
+    ANIMATING,
+    /** Night was skipped and the cooldown has not expired yet */
+    COOLDOWN
+}
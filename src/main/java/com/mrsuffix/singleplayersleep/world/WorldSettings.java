@@ -0,0 +1,223 @@
+package com.mrsuffix.singleplayersleep.world;
+
+import com.mrsuffix.singleplayersleep.tasks.Easing;
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Sleep settings of a single world, resolved once from the global config and
+ * the world's profile when the world is loaded or the config is reloaded
+ *
+ * A profile uses the same keys as the top level of config.yml; keys it does
+ * not set are inherited from the global settings.
+ */
+public final class WorldSettings {
+
+    // Longest smooth sleep animation, one full day; its offsets are kept in a table
+    public static final int MAX_SMOOTH_SLEEP_DURATION = 24000;
+
+    private final boolean enabled;
+    private final boolean percentageMode;
+    private final int sleepPercentage;
+    private final long sleepDelay;
+    private final long cooldownDuration;
+    private final boolean clearWeather;
+    private final boolean ignoreAFKPlayers;
+    private final boolean particlesEnabled;
+    private final boolean soundsEnabled;
+    private final boolean bossBarEnabled;
+    private final boolean smoothSleepEnabled;
+    private final long smoothSleepSpeed;
+    private final int smoothSleepDuration;
+    private final Easing smoothSleepEasing;
+    private final boolean logSleepEvents;
+
+    private WorldSettings(ConfigurationSection section, WorldSettings parent) {
+        this.enabled = parent != null ? parent.enabled : true;
+        this.percentageMode = section.getBoolean("percentage-mode", parent != null ? parent.percentageMode : false);
+        this.sleepPercentage = section.getInt("sleep-percentage", parent != null ? parent.sleepPercentage : 50);
+        this.sleepDelay = section.getLong("sleep-delay-ticks", parent != null ? parent.sleepDelay : 65L);
+        this.cooldownDuration = section.getLong("cooldown-seconds", parent != null ? parent.cooldownDuration : 30L);
+        this.clearWeather = section.getBoolean("clear-weather", parent != null ? parent.clearWeather : true);
+        this.ignoreAFKPlayers = section.getBoolean("afk-detection.ignore-afk-players",
+                parent != null ? parent.ignoreAFKPlayers : true);
+        this.particlesEnabled = section.getBoolean("effects.particles.enabled",
+                parent != null ? parent.particlesEnabled : true);
+        this.soundsEnabled = section.getBoolean("effects.sounds.enabled", parent != null ? parent.soundsEnabled : true);
+        this.bossBarEnabled = section.getBoolean("effects.bossbar.enabled", parent != null ? parent.bossBarEnabled : true);
+        this.smoothSleepEnabled = section.getBoolean("effects.smooth-sleep.enabled",
+                parent != null ? parent.smoothSleepEnabled : true);
+        this.smoothSleepSpeed = section.getLong("effects.smooth-sleep.speed",
+                parent != null ? parent.smoothSleepSpeed : 100L);
+        this.smoothSleepDuration = Math.max(0, Math.min(MAX_SMOOTH_SLEEP_DURATION,
+                section.getInt("effects.smooth-sleep.duration-ticks", parent != null ? parent.smoothSleepDuration : 100)));
+        String easing = section.getString("effects.smooth-sleep.easing");
+        this.smoothSleepEasing = easing != null ? Easing.fromConfig(easing)
+                : parent != null ? parent.smoothSleepEasing : Easing.EASE_IN_OUT;
+        this.logSleepEvents = section.getBoolean("log-sleep-events", parent != null ? parent.logSleepEvents : false);
+    }
+
+    private WorldSettings(WorldSettings other, boolean enabled) {
+        this.enabled = enabled;
+        this.percentageMode = other.percentageMode;
+        this.sleepPercentage = other.sleepPercentage;
+        this.sleepDelay = other.sleepDelay;
+        this.cooldownDuration = other.cooldownDuration;
+        this.clearWeather = other.clearWeather;
+        this.ignoreAFKPlayers = other.ignoreAFKPlayers;
+        this.particlesEnabled = other.particlesEnabled;
+        this.soundsEnabled = other.soundsEnabled;
+        this.bossBarEnabled = other.bossBarEnabled;
+        this.smoothSleepEnabled = other.smoothSleepEnabled;
+        this.smoothSleepSpeed = other.smoothSleepSpeed;
+        this.smoothSleepDuration = other.smoothSleepDuration;
+        this.smoothSleepEasing = other.smoothSleepEasing;
+        this.logSleepEvents = other.logSleepEvents;
+    }
+
+    /**
+     * Read the global settings from the top level of the config
+     * @param config Config root
+     * @return Global settings
+     */
+    public static WorldSettings fromConfig(ConfigurationSection config) {
+        return new WorldSettings(config, null);
+    }
+
+    /**
+     * Apply a world profile on top of these settings
+     * @param profile Profile section
+     * @return Settings with the profile's values
+     */
+    public WorldSettings withProfile(ConfigurationSection profile) {
+        return new WorldSettings(profile, this);
+    }
+
+    /**
+     * Get these settings for an enabled or disabled world
+     * @param enabled Whether sleep functionality is enabled in the world
+     * @return Settings, this instance if unchanged
+     */
+    public WorldSettings withEnabled(boolean enabled) {
+        return enabled == this.enabled ? this : new WorldSettings(this, enabled);
+    }
+
+    /**
+     * Check if sleep functionality is enabled in the world
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check if percentage mode is enabled
+     * @return true if percentage mode is on
+     */
+    public boolean isPercentageMode() {
+        return percentageMode;
+    }
+
+    /**
+     * Get required sleep percentage
+     * @return Percentage of players required to sleep
+     */
+    public int getSleepPercentage() {
+        return sleepPercentage;
+    }
+
+    /**
+     * Get sleep delay in ticks
+     * @return Delay in ticks
+     */
+    public long getSleepDelay() {
+        return sleepDelay;
+    }
+
+    /**
+     * Get cooldown duration in seconds
+     * @return Cooldown in seconds
+     */
+    public long getCooldownDuration() {
+        return cooldownDuration;
+    }
+
+    /**
+     * Check if weather should be cleared
+     * @return true if weather should be cleared
+     */
+    public boolean shouldClearWeather() {
+        return clearWeather;
+    }
+
+    /**
+     * Check if AFK players should be ignored
+     * @return true if AFK players are ignored
+     */
+    public boolean shouldIgnoreAFKPlayers() {
+        return ignoreAFKPlayers;
+    }
+
+    /**
+     * Check if particles are enabled
+     * @return true if particles should be shown
+     */
+    public boolean areParticlesEnabled() {
+        return particlesEnabled;
+    }
+
+    /**
+     * Check if sounds are enabled
+     * @return true if sounds should be played
+     */
+    public boolean areSoundsEnabled() {
+        return soundsEnabled;
+    }
+
+    /**
+     * Check if the sleep progress BossBar is shown
+     * @return true if enabled
+     */
+    public boolean isBossBarEnabled() {
+        return bossBarEnabled;
+    }
+
+    /**
+     * Check if the night is skipped with a smooth animation
+     * @return true if enabled
+     */
+    public boolean isSmoothSleepEnabled() {
+        return smoothSleepEnabled;
+    }
+
+    /**
+     * Get the fixed smooth sleep speed
+     * @return Ticks added per tick
+     */
+    public long getSmoothSleepSpeed() {
+        return smoothSleepSpeed;
+    }
+
+    /**
+     * Get the target length of the smooth sleep animation
+     * @return Duration in ticks, 0 to derive it from the speed
+     */
+    public int getSmoothSleepDuration() {
+        return smoothSleepDuration;
+    }
+
+    /**
+     * Get the easing curve of the smooth sleep animation
+     * @return Easing
+     */
+    public Easing getSmoothSleepEasing() {
+        return smoothSleepEasing;
+    }
+
+    /**
+     * Check if sleep events are logged to console
+     * @return true if enabled
+     */
+    public boolean isLogSleepEventsEnabled() {
+        return logSleepEvents;
+    }
+}
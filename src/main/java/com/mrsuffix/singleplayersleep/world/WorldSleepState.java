@@ -0,0 +1,360 @@
+package com.mrsuffix.singleplayersleep.world;
+
+import com.mrsuffix.singleplayersleep.tasks.SleepTask;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sleep related state of a single world
+ */
+public class WorldSleepState {
+
+    private final World world;
+    private final UUID worldId;
+    private final String worldName;
+
+    // Resolved by WorldStateManager on load and config reload
+    private WorldSettings settings;
+
+    // Maintained incrementally by WorldStateManager
+    private int eligiblePlayers;
+    private int sleepingPlayers;
+
+    // Set when the counters change, cleared when SleepOrchestrator re-evaluates the world
+    private boolean dirty;
+    private Player lastSleeper;
+    private Player lastWaker;
+
+    // Advanced by SleepOrchestrator, ticks are server ticks
+    private SleepPhase phase = SleepPhase.IDLE;
+    private long countdownStart = -1L;
+    private long countdownEnd = -1L;
+    private SleepTask animation;
+
+    // Broadcasts held back by the anti-spam window
+    private String pendingKey;
+    private String[] pendingValues;
+    private int pendingBroadcasts;
+
+    // Cooldown deadline in world game ticks, managed by CooldownManager
+    private long cooldownEnd = -1L;
+    private final Set<UUID> cooldownNotified = new HashSet<>();
+
+    public WorldSleepState(World world) {
+        this.world = world;
+        this.worldId = world.getUID();
+        this.worldName = world.getName();
+    }
+
+    /**
+     * Get the world this state belongs to
+     * @return World
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Get the UID of the world
+     * @return World UID
+     */
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    /**
+     * Get the name of the world
+     * @return World name
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Get the settings of this world
+     * @return World settings
+     */
+    public WorldSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Replace the settings of this world
+     * @param settings Resolved world settings
+     */
+    public void setSettings(WorldSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Get the number of players that count towards the sleep requirement
+     * @return Eligible player count
+     */
+    public int getEligiblePlayers() {
+        return eligiblePlayers;
+    }
+
+    /**
+     * Get the number of players currently in bed
+     * @return Sleeping player count
+     */
+    public int getSleepingPlayers() {
+        return sleepingPlayers;
+    }
+
+    /**
+     * Get how many sleeping players are needed for a percentage
+     * @param percentage Required percentage
+     * @return Required sleeping players
+     */
+    public int getRequiredPlayers(int percentage) {
+        return (int) Math.ceil((eligiblePlayers * percentage) / 100.0);
+    }
+
+    /**
+     * Get the share of eligible players that are sleeping
+     * @return Percentage (0-100, may exceed 100 when ineligible players sleep)
+     */
+    public int getSleepPercentage() {
+        return (int) ((sleepingPlayers * 100.0) / Math.max(1, eligiblePlayers));
+    }
+
+    /**
+     * Adjust the eligible player counter
+     * @param delta Change in eligible players
+     */
+    public void addEligible(int delta) {
+        eligiblePlayers += delta;
+    }
+
+    /**
+     * Adjust the sleeping player counter
+     * @param delta Change in sleeping players
+     */
+    public void addSleeping(int delta) {
+        sleepingPlayers += delta;
+    }
+
+    /**
+     * Check if the world is waiting to be re-evaluated
+     * @return true if dirty
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Mark or unmark the world for re-evaluation
+     * @param dirty New dirty flag
+     */
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    /**
+     * Remember the player that most recently went to bed
+     * @param player Player
+     */
+    public void setLastSleeper(Player player) {
+        this.lastSleeper = player;
+    }
+
+    /**
+     * Get and forget the player that most recently went to bed
+     * @return Player, or null if nobody went to bed since the last call
+     */
+    public Player takeLastSleeper() {
+        Player player = lastSleeper;
+        lastSleeper = null;
+        return player;
+    }
+
+    /**
+     * Remember the player that most recently left their bed
+     * @param player Player
+     */
+    public void setLastWaker(Player player) {
+        this.lastWaker = player;
+    }
+
+    /**
+     * Get and forget the player that most recently left their bed
+     * @return Player, or null if nobody woke up since the last call
+     */
+    public Player takeLastWaker() {
+        Player player = lastWaker;
+        lastWaker = null;
+        return player;
+    }
+
+    /**
+     * Get the current phase of the night skip state machine
+     * @return Current phase
+     */
+    public SleepPhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Set the phase. Only the orchestrator should call this so transitions
+     * fire their event.
+     * @param phase New phase
+     */
+    public void setPhase(SleepPhase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Set the countdown window
+     * @param startTick Server tick the countdown starts at
+     * @param endTick Server tick the night is skipped at
+     */
+    public void startCountdown(long startTick, long endTick) {
+        this.countdownStart = startTick;
+        this.countdownEnd = endTick;
+    }
+
+    /**
+     * Clear the countdown window
+     */
+    public void clearCountdown() {
+        this.countdownStart = -1L;
+        this.countdownEnd = -1L;
+    }
+
+    /**
+     * Check if a night skip countdown is running
+     * @return true if counting down
+     */
+    public boolean isCountingDown() {
+        return phase == SleepPhase.COUNTDOWN;
+    }
+
+    /**
+     * Get the server tick the countdown started at
+     * @return Start tick, or -1 if not counting down
+     */
+    public long getCountdownStart() {
+        return countdownStart;
+    }
+
+    /**
+     * Get the server tick the countdown ends at
+     * @return End tick, or -1 if not counting down
+     */
+    public long getCountdownEnd() {
+        return countdownEnd;
+    }
+
+    /**
+     * Get countdown progress at a server tick
+     * @param tick Current server tick
+     * @return Progress from 0.0 to 1.0
+     */
+    public float getCountdownProgress(long tick) {
+        long duration = countdownEnd - countdownStart;
+        if (duration <= 0L) {
+            return 1.0f;
+        }
+        return Math.min(1.0f, (float) (tick - countdownStart) / duration);
+    }
+
+    /**
+     * Get the running smooth sleep animation
+     * @return Animation, or null if none
+     */
+    public SleepTask getAnimation() {
+        return animation;
+    }
+
+    /**
+     * Set the running smooth sleep animation
+     * @param animation Animation, or null to clear it
+     */
+    public void setAnimation(SleepTask animation) {
+        this.animation = animation;
+    }
+
+    /**
+     * Hold back a broadcast until the anti-spam window is flushed
+     * @param key Message key
+     * @param values Message slot values
+     * @return true if it is the first broadcast of this window
+     */
+    public boolean queueBroadcast(String key, String[] values) {
+        pendingKey = key;
+        pendingValues = values;
+        return pendingBroadcasts++ == 0;
+    }
+
+    /**
+     * Get the key of the only broadcast held back in this window
+     * @return Message key, or null unless exactly one was queued
+     */
+    public String getPendingKey() {
+        return pendingBroadcasts == 1 ? pendingKey : null;
+    }
+
+    /**
+     * Get the slot values of the only broadcast held back in this window
+     * @return Slot values
+     */
+    public String[] getPendingValues() {
+        return pendingValues;
+    }
+
+    /**
+     * Get the number of broadcasts held back in this window
+     * @return Held back broadcasts
+     */
+    public int getPendingBroadcasts() {
+        return pendingBroadcasts;
+    }
+
+    /**
+     * Forget the broadcasts held back in this window
+     */
+    public void clearPendingBroadcasts() {
+        pendingKey = null;
+        pendingValues = null;
+        pendingBroadcasts = 0;
+    }
+
+    /**
+     * Get the game tick the cooldown ends at
+     * @return Deadline in world game ticks, or -1 if none
+     */
+    public long getCooldownEnd() {
+        return cooldownEnd;
+    }
+
+    /**
+     * Set the cooldown deadline, starting a new notification window
+     * @param cooldownEnd Deadline in world game ticks, or -1 to clear it
+     */
+    public void setCooldownEnd(long cooldownEnd) {
+        this.cooldownEnd = cooldownEnd;
+        cooldownNotified.clear();
+    }
+
+    /**
+     * Remember that a player was told about the current cooldown
+     * @param playerId Player UUID
+     * @return true if the player had not been told yet
+     */
+    public boolean markCooldownNotified(UUID playerId) {
+        return cooldownNotified.add(playerId);
+    }
+
+    /**
+     * Check if the world is counting down or animating
+     * @return true if a night skip is in progress
+     */
+    public boolean isBusy() {
+        return phase == SleepPhase.COUNTDOWN || phase == SleepPhase.ANIMATING;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mrsuffix.singleplayersleep.managers;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SleepRollupTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void averagesSkipsOfARange() {
+        long now = 1_700_000_000_000L;
+        SleepRollup rollup = new SleepRollup(SleepRollup.hourOf(now));
+        rollup.recordSkip(now, 2, 100);
+        rollup.recordSkip(now, 4, 300);
+        rollup.recordManualSkip(now);
+
+        SleepRollup.Totals totals = rollup.getTotals(SleepRollup.Range.HOUR, SleepRollup.hourOf(now));
+        assertEquals(2, totals.getSkips());
+        assertEquals(1, totals.getManualSkips());
+        assertEquals(200, totals.getAverageSkipTicks());
+        assertEquals(3.0, totals.getAverageParticipants(), 1e-9);
+
+        SleepRollup.Totals empty = SleepRollup.Totals.empty();
+        assertEquals(0, empty.getAverageSkipTicks());
+        assertEquals(0.0, empty.getAverageParticipants(), 1e-9);
+    }
+
+    @Test
+    void rollsHoursIntoDaysAndDropsOldDays() {
+        long now = 1_700_000_000_000L;
+        long hour = SleepRollup.hourOf(now);
+        SleepRollup rollup = new SleepRollup(hour);
+        rollup.recordSkip(now, 1, 20);
+
+        assertEquals(1, skips(rollup, SleepRollup.Range.DAY, hour + 23));
+        assertEquals(0, skips(rollup, SleepRollup.Range.DAY, hour + 24));
+        assertEquals(1, skips(rollup, SleepRollup.Range.MONTH, hour + 24));
+        assertEquals(0, skips(rollup, SleepRollup.Range.MONTH, hour + 24 * 31));
+        assertEquals(1, skips(rollup, SleepRollup.Range.ALL, hour + 24 * 365));
+    }
+
+    @Test
+    void matchesBruteForceCountsAfterRandomEvents() {
+        Random random = new Random(3);
+        long now = 1_700_000_000_000L;
+        SleepRollup rollup = new SleepRollup(SleepRollup.hourOf(now));
+        List<Long> events = new ArrayList<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            // Mostly small steps, sometimes gaps of days
+            now += random.nextInt(100) < 3 ? random.nextInt(2_000) * HOUR : random.nextInt(3 * (int) HOUR);
+            // Some events are older than the hour ring, as when replayed from the journal
+            long millis = now - (random.nextInt(10) == 0 ? random.nextInt(1_000) * HOUR : 0L);
+            rollup.recordSkip(millis, 1 + random.nextInt(4), random.nextInt(200));
+            events.add(SleepRollup.hourOf(millis));
+
+            if (i % 50 == 0) {
+                long hour = SleepRollup.hourOf(now);
+                if (random.nextBoolean()) {
+                    YamlConfiguration yaml = new YamlConfiguration();
+                    rollup.copy().save(yaml);
+                    rollup = SleepRollup.load(yaml, hour);
+                }
+                for (SleepRollup.Range range : SleepRollup.Range.values()) {
+                    assertEquals(expectedSkips(events, range, hour), skips(rollup, range, hour),
+                            range + " after " + i + " events");
+                }
+            }
+        }
+    }
+
+    private static long skips(SleepRollup rollup, SleepRollup.Range range, long hour) {
+        return rollup.getTotals(range, hour).getSkips();
+    }
+
+    /**
+     * Count the events a range covers: the hour ring holds the last 24 hours,
+     * older events count by the day they were rolled into
+     */
+    private static long expectedSkips(List<Long> events, SleepRollup.Range range, long hour) {
+        long today = Math.floorDiv(hour, 24);
+        long count = 0;
+        for (long event : events) {
+            boolean inHours = event > hour - 24;
+            long day = Math.floorDiv(event, 24);
+            boolean counted;
+            switch (range) {
+                case HOUR:
+                    counted = event == hour;
+                    break;
+                case DAY:
+                    counted = inHours;
+                    break;
+                case WEEK:
+                    counted = inHours || day > today - 7;
+                    break;
+                case MONTH:
+                    counted = inHours || day > today - 30;
+                    break;
+                default:
+                    counted = true;
+                    break;
+            }
+            if (counted) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedSlotListTest {
+
+    @Test
+    void ranksByScoreThenSlot() {
+        RankedSlotList list = new RankedSlotList(4);
+        list.set(3, 5);
+        list.set(1, 7);
+        list.set(2, 5);
+        list.set(0, 1);
+
+        assertEquals(4, list.size());
+        assertEquals(1, list.slotAt(0));
+        assertEquals(2, list.slotAt(1));
+        assertEquals(3, list.slotAt(2));
+        assertEquals(0, list.slotAt(3));
+        assertEquals(-1, list.slotAt(4));
+        assertEquals(2, list.rankOf(3));
+    }
+
+    @Test
+    void movesAndRemovesSlots() {
+        RankedSlotList list = new RankedSlotList(4);
+        list.set(0, 1);
+        list.set(1, 2);
+        list.set(0, 3);
+        assertEquals(0, list.rankOf(0));
+        assertEquals(1, list.rankOf(1));
+
+        list.remove(0);
+        assertFalse(list.contains(0));
+        assertEquals(-1, list.rankOf(0));
+        assertEquals(0, list.rankOf(1));
+        assertEquals(1, list.size());
+
+        list.remove(0);
+        list.remove(42);
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    void matchesSortedReferenceAfterRandomUpdates() {
+        Random random = new Random(42);
+        RankedSlotList list = new RankedSlotList(4);
+        Map<Integer, Integer> scores = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            int slot = random.nextInt(500);
+            if (random.nextInt(8) == 0) {
+                list.remove(slot);
+                scores.remove(slot);
+            } else {
+                int score = random.nextInt(40);
+                list.set(slot, score);
+                scores.put(slot, score);
+            }
+
+            if (i % 500 == 0) {
+                assertMatches(list, scores, random);
+            }
+        }
+        assertMatches(list, scores, random);
+    }
+
+    private static void assertMatches(RankedSlotList list, Map<Integer, Integer> scores, Random random) {
+        List<Integer> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.<Integer>comparingInt(scores::get).reversed().thenComparingInt(slot -> slot));
+
+        assertEquals(expected.size(), list.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            int slot = expected.get(rank);
+            assertTrue(list.contains(slot));
+            assertEquals(slot, list.slotAt(rank), "slot at rank " + rank);
+            assertEquals(rank, list.rankOf(slot), "rank of slot " + slot);
+        }
+
+        int from = expected.isEmpty() ? 0 : random.nextInt(expected.size());
+        List<Integer> page = new ArrayList<>();
+        list.forEach(from, 10, page::add);
+        assertEquals(expected.subList(from, Math.min(from + 10, expected.size())), page);
+    }
+}
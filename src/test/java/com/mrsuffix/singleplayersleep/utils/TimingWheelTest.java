@@ -0,0 +1,125 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresAtDeadline() {
+        TimingWheel wheel = new TimingWheel(100L, 4);
+        List<Integer> expired = new ArrayList<>();
+        wheel.schedule(0, 105L);
+        wheel.schedule(1, 100L); // Past deadlines expire on the next tick
+
+        wheel.advance(101L, expired::add);
+        assertEquals(List.of(1), expired);
+        assertTrue(wheel.isScheduled(0));
+
+        wheel.advance(104L, expired::add);
+        assertEquals(1, expired.size());
+        wheel.advance(105L, expired::add);
+        assertEquals(List.of(1, 0), expired);
+        assertFalse(wheel.isScheduled(0));
+        assertEquals(105L, wheel.getCurrentTick());
+    }
+
+    @Test
+    void rescheduleAndCancelReplaceDeadlines() {
+        TimingWheel wheel = new TimingWheel(0L, 4);
+        List<Integer> expired = new ArrayList<>();
+        wheel.schedule(0, 10L);
+        wheel.schedule(0, 20L);
+        wheel.schedule(1, 15L);
+        wheel.cancel(1);
+        wheel.cancel(99);
+
+        wheel.advance(19L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(20L, expired::add);
+        assertEquals(List.of(0), expired);
+    }
+
+    @Test
+    void callbackMayCancelOrMoveIdsDueInTheSameTick() {
+        TimingWheel wheel = new TimingWheel(0L, 4);
+        List<Integer> expired = new ArrayList<>();
+        wheel.schedule(0, 5L);
+        wheel.schedule(1, 5L);
+        wheel.schedule(2, 5L);
+
+        wheel.advance(5L, id -> {
+            expired.add(id);
+            if (expired.size() == 1) {
+                // Whichever runs first cancels one and postpones the other
+                wheel.cancel((id + 1) % 3);
+                wheel.schedule((id + 2) % 3, 8L);
+            }
+        });
+        assertEquals(1, expired.size());
+        int first = expired.get(0);
+        assertFalse(wheel.isScheduled((first + 1) % 3));
+        assertTrue(wheel.isScheduled((first + 2) % 3));
+
+        wheel.advance(8L, expired::add);
+        assertEquals(List.of(first, (first + 2) % 3), expired);
+    }
+
+    @Test
+    void expiresDeadlinesBeyondTheWheelRange() {
+        TimingWheel wheel = new TimingWheel(0L, 4);
+        long deadline = (1L << 24) + 12_345L;
+        long[] expiredAt = {-1L};
+        wheel.schedule(0, deadline);
+
+        wheel.advance(deadline, id -> expiredAt[0] = wheel.getCurrentTick());
+        assertEquals(deadline, expiredAt[0]);
+    }
+
+    @Test
+    void expiresEveryIdExactlyOnceAtItsDeadline() {
+        Random random = new Random(11);
+        long start = 1_000L;
+        TimingWheel wheel = new TimingWheel(start, 4);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long[] now = {start};
+
+        for (int round = 0; round < 2_000; round++) {
+            for (int i = 0; i < 5; i++) {
+                int id = random.nextInt(300);
+                if (random.nextInt(6) == 0) {
+                    wheel.cancel(id);
+                    deadlines.remove(id);
+                } else {
+                    // Mostly short delays, some spanning the higher levels
+                    long delay = random.nextInt(4) == 0 ? random.nextInt(300_000) : 1 + random.nextInt(200);
+                    wheel.schedule(id, now[0] + delay);
+                    deadlines.put(id, now[0] + delay);
+                }
+            }
+
+            long target = now[0] + 1 + random.nextInt(random.nextInt(10) == 0 ? 20_000 : 50);
+            while (now[0] < target) {
+                now[0]++;
+                wheel.advance(now[0], id -> {
+                    Long deadline = deadlines.remove(id);
+                    assertEquals(deadline, Long.valueOf(now[0]), "deadline of " + id);
+                });
+            }
+
+            for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+                assertTrue(entry.getValue() > now[0], "missed " + entry.getKey());
+                assertTrue(wheel.isScheduled(entry.getKey()));
+            }
+        }
+    }
+}
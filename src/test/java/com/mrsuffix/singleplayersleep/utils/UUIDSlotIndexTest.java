@@ -0,0 +1,66 @@
+package com.mrsuffix.singleplayersleep.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UUIDSlotIndexTest {
+
+    @Test
+    void storesAndReplacesValues() {
+        UUIDSlotIndex index = new UUIDSlotIndex(4);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertEquals(-1, index.get(first));
+        index.put(first, 1);
+        index.put(second, 2);
+        index.put(first, 3);
+
+        assertEquals(3, index.get(first));
+        assertEquals(2, index.get(second.getMostSignificantBits(), second.getLeastSignificantBits()));
+        assertEquals(2, index.size());
+
+        index.clear();
+        assertEquals(-1, index.get(first));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void matchesHashMapAfterRandomUpdates() {
+        Random random = new Random(7);
+        UUIDSlotIndex index = new UUIDSlotIndex(4);
+        Map<UUID, Integer> expected = new HashMap<>();
+
+        // Few distinct halves, so many keys collide and probe chains are long
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            keys.add(new UUID(random.nextInt(64), random.nextInt(64)));
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            UUID key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : -1, index.remove(key));
+            } else {
+                int value = random.nextInt(1_000);
+                index.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (UUID key : keys) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : -1, index.get(key), "value of " + key);
+        }
+    }
+}